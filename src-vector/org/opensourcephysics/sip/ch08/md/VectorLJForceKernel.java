@@ -0,0 +1,184 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+import jdk.incubator.vector.*;
+
+/**
+ * VectorLJForceKernel computes Lennard-Jones pair forces several j-particles at a time
+ * using the Java Vector API.
+ *
+ * This class is kept in the optional source root src-vector so that the src tree compiles
+ * without the incubator module. Compiling and running it requires --add-modules jdk.incubator.vector
+ * with the classes of src on the class path. LJForceKernel.createVectorKernel returns null if the
+ * class or the module is missing, and LJParticles then uses its scalar loops.
+ *
+ * The minimum image convention assumes that separations are smaller than 1.5 times
+ * the box size, which holds because LJParticles keeps particles within the box.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class VectorLJForceKernel extends LJForceKernel {
+  static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+  static final DoubleVector ONE = DoubleVector.broadcast(SPECIES, 1.0);
+
+  public void allPairsForces(LJParticles md, int first, int stride, double[] fx, double[] fy, double[] sums) {
+    int N = md.N;
+    double[] x = md.x, y = md.y;
+    double Lx = md.Lx, Ly = md.Ly;
+    double potentialEnergy = 0, virial = 0;
+    for(int i = first;i<N-1;i += stride) {
+      double xi = x[i], yi = y[i];
+      DoubleVector fxi = DoubleVector.zero(SPECIES);
+      DoubleVector fyi = DoubleVector.zero(SPECIES);
+      DoubleVector pe = DoubleVector.zero(SPECIES);
+      DoubleVector w = DoubleVector.zero(SPECIES);
+      int j = i+1;
+      int upperBound = j+SPECIES.loopBound(N-j);
+      for(;j<upperBound;j += SPECIES.length()) {
+        DoubleVector dx = separation(DoubleVector.broadcast(SPECIES, xi).sub(DoubleVector.fromArray(SPECIES, x, j)), Lx);
+        DoubleVector dy = separation(DoubleVector.broadcast(SPECIES, yi).sub(DoubleVector.fromArray(SPECIES, y, j)), Ly);
+        DoubleVector oneOverR2 = ONE.div(dx.mul(dx).add(dy.mul(dy)));
+        DoubleVector oneOverR6 = oneOverR2.mul(oneOverR2).mul(oneOverR2);
+        DoubleVector fOverR = oneOverR6.mul(48.0).mul(oneOverR6.sub(0.5)).mul(oneOverR2);
+        DoubleVector fxij = fOverR.mul(dx);
+        DoubleVector fyij = fOverR.mul(dy);
+        fxi = fxi.add(fxij);
+        fyi = fyi.add(fyij);
+        DoubleVector.fromArray(SPECIES, fx, j).sub(fxij).intoArray(fx, j);
+        DoubleVector.fromArray(SPECIES, fy, j).sub(fyij).intoArray(fy, j);
+        pe = pe.add(oneOverR6.mul(oneOverR6.sub(1.0)));
+        w = w.add(dx.mul(fxij)).add(dy.mul(fyij));
+      }
+      double fxSum = fxi.reduceLanes(VectorOperators.ADD);
+      double fySum = fyi.reduceLanes(VectorOperators.ADD);
+      potentialEnergy += 4.0*pe.reduceLanes(VectorOperators.ADD);
+      virial += w.reduceLanes(VectorOperators.ADD);
+      for(;j<N;j++) { // remaining pairs
+        double dx = separation(xi-x[j], Lx);
+        double dy = separation(yi-y[j], Ly);
+        double oneOverR2 = 1.0/(dx*dx+dy*dy);
+        double oneOverR6 = oneOverR2*oneOverR2*oneOverR2;
+        double fOverR = 48.0*oneOverR6*(oneOverR6-0.5)*oneOverR2;
+        double fxij = fOverR*dx;
+        double fyij = fOverR*dy;
+        fxSum += fxij;
+        fySum += fyij;
+        fx[j] -= fxij;
+        fy[j] -= fyij;
+        potentialEnergy += 4.0*(oneOverR6*oneOverR6-oneOverR6);
+        virial += dx*fxij+dy*fyij;
+      }
+      fx[i] += fxSum;
+      fy[i] += fySum;
+    }
+    sums[0] += potentialEnergy;
+    sums[1] += virial;
+  }
+
+  public void neighborListForces(LJParticles md, int first, int last, double[] fx, double[] fy, double[] sums) {
+    int[] start = md.neighborList.start;
+    int[] neighbors = md.neighborList.neighbors;
+    double[] x = md.x, y = md.y;
+    double Lx = md.Lx, Ly = md.Ly;
+    double rc2 = md.cutoff*md.cutoff;
+    double potentialEnergy = 0, virial = 0;
+    for(int i = first;i<last;i++) {
+      double xi = x[i], yi = y[i];
+      DoubleVector fxi = DoubleVector.zero(SPECIES);
+      DoubleVector fyi = DoubleVector.zero(SPECIES);
+      DoubleVector pe = DoubleVector.zero(SPECIES);
+      DoubleVector w = DoubleVector.zero(SPECIES);
+      int k = start[i];
+      int upperBound = k+SPECIES.loopBound(start[i+1]-k);
+      for(;k<upperBound;k += SPECIES.length()) { // neighbors of i are distinct so the scatter is safe
+        DoubleVector dx = separation(DoubleVector.broadcast(SPECIES, xi).sub(DoubleVector.fromArray(SPECIES, x, 0, neighbors, k)), Lx);
+        DoubleVector dy = separation(DoubleVector.broadcast(SPECIES, yi).sub(DoubleVector.fromArray(SPECIES, y, 0, neighbors, k)), Ly);
+        DoubleVector r2 = dx.mul(dx).add(dy.mul(dy));
+        VectorMask<Double> outside = r2.compare(VectorOperators.GE, rc2);
+        DoubleVector oneOverR2 = ONE.div(r2);
+        DoubleVector oneOverR6 = oneOverR2.mul(oneOverR2).mul(oneOverR2).blend(0.0, outside);
+        DoubleVector fOverR = oneOverR6.mul(48.0).mul(oneOverR6.sub(0.5)).mul(oneOverR2);
+        DoubleVector fxij = fOverR.mul(dx);
+        DoubleVector fyij = fOverR.mul(dy);
+        fxi = fxi.add(fxij);
+        fyi = fyi.add(fyij);
+        DoubleVector.fromArray(SPECIES, fx, 0, neighbors, k).sub(fxij).intoArray(fx, 0, neighbors, k);
+        DoubleVector.fromArray(SPECIES, fy, 0, neighbors, k).sub(fyij).intoArray(fy, 0, neighbors, k);
+        pe = pe.add(oneOverR6.mul(oneOverR6.sub(1.0)));
+        w = w.add(dx.mul(fxij)).add(dy.mul(fyij));
+      }
+      double fxSum = fxi.reduceLanes(VectorOperators.ADD);
+      double fySum = fyi.reduceLanes(VectorOperators.ADD);
+      potentialEnergy += 4.0*pe.reduceLanes(VectorOperators.ADD);
+      virial += w.reduceLanes(VectorOperators.ADD);
+      for(;k<start[i+1];k++) { // remaining neighbors
+        int j = neighbors[k];
+        double dx = separation(xi-x[j], Lx);
+        double dy = separation(yi-y[j], Ly);
+        double r2 = dx*dx+dy*dy;
+        if(r2<rc2) {
+          double oneOverR2 = 1.0/r2;
+          double oneOverR6 = oneOverR2*oneOverR2*oneOverR2;
+          double fOverR = 48.0*oneOverR6*(oneOverR6-0.5)*oneOverR2;
+          double fxij = fOverR*dx;
+          double fyij = fOverR*dy;
+          fxSum += fxij;
+          fySum += fyij;
+          fx[j] -= fxij;
+          fy[j] -= fyij;
+          potentialEnergy += 4.0*(oneOverR6*oneOverR6-oneOverR6);
+          virial += dx*fxij+dy*fyij;
+        }
+      }
+      fx[i] += fxSum;
+      fy[i] += fySum;
+    }
+    sums[0] += potentialEnergy;
+    sums[1] += virial;
+  }
+
+  // minimum image separation for separations between -1.5L and 1.5L
+  private static DoubleVector separation(DoubleVector ds, double L) {
+    ds = ds.sub(L, ds.compare(VectorOperators.GT, 0.5*L));
+    return ds.add(L, ds.compare(VectorOperators.LT, -0.5*L));
+  }
+
+  private static double separation(double ds, double L) {
+    if(ds>0.5*L) {
+      return ds-L;
+    } else if(ds<-0.5*L) {
+      return ds+L;
+    }
+    return ds;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
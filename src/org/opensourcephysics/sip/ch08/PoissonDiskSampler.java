@@ -0,0 +1,147 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08;
+import java.util.Random;
+import org.opensourcephysics.numerics.*;
+
+/**
+ * PoissonDiskSampler places particles at random in a periodic box with no two particles
+ * closer than a minimum distance.
+ *
+ * Particles are inserted one at a time. A cell that can still hold a particle is chosen at
+ * random and random positions within it are tried until one is at least rMin from every
+ * particle already placed. A cell in which candidatesPerCell tries fail is closed, which
+ * fills the box to higher densities than trying positions in the whole box. The cells are
+ * no smaller than rMin/sqrt(2) and no smaller than the area per particle, so each overlap test
+ * looks at a few nearby cells and there are O(N) cells. Insertion stops as soon as N particles
+ * are placed, so the time and memory are proportional to N.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class PoissonDiskSampler {
+  public int candidatesPerCell = 30; // tries in a cell before it is closed
+  Random random;
+  double Lx, Ly, rMin;
+  int cellsX, cellsY, range;
+  int[] head;                        // first particle in each cell or -1
+  int[] next;                        // next particle in the same cell or -1
+  double[] px, py;                   // particles placed so far
+  int count;
+
+  public PoissonDiskSampler(Random random) {
+    this.random = random;
+  }
+
+  /**
+   * Places N particles at random positions no closer than rMin.
+   *
+   * @param x the x-coordinates
+   * @param y the y-coordinates
+   * @throws IllegalStateException if the density is too high for random positions
+   */
+  public void setPositions(double[] x, double[] y, int N, double Lx, double Ly, double rMin) {
+    this.Lx = Lx;
+    this.Ly = Ly;
+    this.rMin = rMin;
+    double cellSize = Math.max(rMin/Math.sqrt(2), Math.sqrt(Lx*Ly/Math.max(N, 1)));
+    cellsX = Math.max(1, (int) (Lx/cellSize));
+    cellsY = Math.max(1, (int) (Ly/cellSize));
+    range = (int) Math.ceil(rMin*Math.max(cellsX/Lx, cellsY/Ly)); // cells that can hold a particle closer than rMin
+    head = new int[cellsX*cellsY];
+    int[] open = new int[head.length]; // cells that may still hold a particle
+    for(int c = 0;c<head.length;c++) {
+      head[c] = -1;
+      open[c] = c;
+    }
+    int numberOpen = open.length;
+    next = new int[N];
+    px = x;
+    py = y;
+    count = 0;
+    while(count<N) {
+      if(numberOpen==0) {
+        throw new IllegalStateException("only "+count+" particles fit at random; "+N+" requested");
+      }
+      int a = random.nextInt(numberOpen);
+      int c = open[a];
+      boolean found = false;
+      for(int k = 0;k<candidatesPerCell;k++) {
+        double cx = Lx*(c%cellsX+random.nextDouble())/cellsX;
+        double cy = Ly*(c/cellsX+random.nextDouble())/cellsY;
+        if(!overlaps(cx, cy)) {
+          add(cx, cy);
+          found = true;
+          break;
+        }
+      }
+      if(!found) {
+        open[a] = open[--numberOpen];
+      }
+    }
+  }
+
+  private void add(double x, double y) {
+    px[count] = x;
+    py[count] = y;
+    int c = cellX(x)+cellsX*cellY(y);
+    next[count] = head[c];
+    head[c] = count;
+    count++;
+  }
+
+  private boolean overlaps(double x, double y) {
+    int cx = cellX(x), cy = cellY(y);
+    double r2Min = rMin*rMin;
+    for(int dx = -range;dx<=range;dx++) {
+      int column = ((cx+dx)%cellsX+cellsX)%cellsX;
+      for(int dy = -range;dy<=range;dy++) {
+        for(int p = head[column+cellsX*(((cy+dy)%cellsY+cellsY)%cellsY)];p>=0;p = next[p]) {
+          double sx = PBC.separation(x-px[p], Lx);
+          double sy = PBC.separation(y-py[p], Ly);
+          if(sx*sx+sy*sy<r2Min) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private int cellX(double x) {
+    return Math.min((int) (x*cellsX/Lx), cellsX-1);
+  }
+
+  private int cellY(double y) {
+    return Math.min((int) (y*cellsY/Ly), cellsY-1);
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
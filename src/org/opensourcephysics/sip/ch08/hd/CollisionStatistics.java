@@ -0,0 +1,237 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.hd;
+import org.opensourcephysics.frames.*;
+
+/**
+ * CollisionStatistics accumulates the distributions of the free times and free paths of hard
+ * disks and block averages of the pressure as collisions occur.
+ *
+ * The free time of a disk is the time between two of its collisions and the free path is the
+ * distance it moves in that time. The first collision of each disk after a reset is used only
+ * to start its clock. The arrays are allocated once so that recording a collision does not
+ * allocate memory.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class CollisionStatistics {
+  public int N;
+  public double temperature;
+  public double timeBinWidth, pathBinWidth;
+  public long[] freeTimeCounts, freePathCounts; // values beyond the last bin are counted as overflow
+  public long freeTimeOverflow, freePathOverflow;
+  public long numberOfFreeTimes = 0;
+  public double freeTimeSum = 0, freePathSum = 0;
+  public int collisionsPerBlock = 1000;
+  public int numberOfBlocks = 0;
+  public double blockPressureSum = 0, blockPressureSquaredSum = 0;
+  double[] lastCollisionTime; // NaN until the first collision of each disk
+  double blockStartTime, blockVirialSum;
+  int blockCollisions;
+
+  /**
+   * Constructs the accumulators.
+   *
+   * @param N the number of disks
+   * @param temperature the temperature used to compute the pressure
+   * @param timeBinWidth the bin width of the free time histogram
+   * @param pathBinWidth the bin width of the free path histogram
+   * @param numberOfBins the number of bins in each histogram
+   */
+  public CollisionStatistics(int N, double temperature, double timeBinWidth, double pathBinWidth, int numberOfBins) {
+    this.N = N;
+    this.temperature = temperature;
+    this.timeBinWidth = timeBinWidth;
+    this.pathBinWidth = pathBinWidth;
+    freeTimeCounts = new long[numberOfBins];
+    freePathCounts = new long[numberOfBins];
+    lastCollisionTime = new double[N];
+    java.util.Arrays.fill(lastCollisionTime, Double.NaN);
+    resetAverages(0);
+  }
+
+  /**
+   * Clears the accumulated data and moves the time origin to the given time.
+   *
+   * @param t the time that becomes the new time zero
+   */
+  public void resetAverages(double t) {
+    for(int i = 0;i<N;i++) {
+      lastCollisionTime[i] -= t;
+    }
+    java.util.Arrays.fill(freeTimeCounts, 0);
+    java.util.Arrays.fill(freePathCounts, 0);
+    freeTimeOverflow = freePathOverflow = 0;
+    numberOfFreeTimes = 0;
+    freeTimeSum = freePathSum = 0;
+    numberOfBlocks = 0;
+    blockPressureSum = blockPressureSquaredSum = 0;
+    blockStartTime = 0;
+    blockVirialSum = 0;
+    blockCollisions = 0;
+  }
+
+  /**
+   * Records a collision between disks i and j.
+   *
+   * @param t the time of the collision
+   * @param speedI the speed of disk i before the collision
+   * @param speedJ the speed of disk j before the collision
+   * @param virial the change in the virial sum due to the collision
+   */
+  public void record(double t, int i, int j, double speedI, double speedJ, double virial) {
+    recordFreeTime(t, i, speedI);
+    recordFreeTime(t, j, speedJ);
+    blockVirialSum += virial;
+    blockCollisions++;
+    if(blockCollisions==collisionsPerBlock) {
+      double p = 1+blockVirialSum/(2*(t-blockStartTime)*N*temperature);
+      blockPressureSum += p;
+      blockPressureSquaredSum += p*p;
+      numberOfBlocks++;
+      blockStartTime = t;
+      blockVirialSum = 0;
+      blockCollisions = 0;
+    }
+  }
+
+  void recordFreeTime(double t, int i, double speed) {
+    double freeTime = t-lastCollisionTime[i];
+    lastCollisionTime[i] = t;
+    if(Double.isNaN(freeTime)) {
+      return;
+    }
+    double freePath = speed*freeTime;
+    numberOfFreeTimes++;
+    freeTimeSum += freeTime;
+    freePathSum += freePath;
+    int bin = (int) (freeTime/timeBinWidth);
+    if(bin<freeTimeCounts.length) {
+      freeTimeCounts[bin]++;
+    } else {
+      freeTimeOverflow++;
+    }
+    bin = (int) (freePath/pathBinWidth);
+    if(bin<freePathCounts.length) {
+      freePathCounts[bin]++;
+    } else {
+      freePathOverflow++;
+    }
+  }
+
+  public double getMeanFreeTime() {
+    return freeTimeSum/numberOfFreeTimes;
+  }
+
+  public double getMeanFreePath() {
+    return freePathSum/numberOfFreeTimes;
+  }
+
+  /**
+   * Gets the mean of the block pressures.
+   *
+   * @return PA/NkT
+   */
+  public double getPressure() {
+    return blockPressureSum/numberOfBlocks;
+  }
+
+  /**
+   * Gets the estimated error of the mean pressure from the spread of the block pressures.
+   *
+   * @return double
+   */
+  public double getPressureError() {
+    if(numberOfBlocks<2) {
+      return Double.NaN;
+    }
+    double mean = getPressure();
+    double variance = blockPressureSquaredSum/numberOfBlocks-mean*mean;
+    return Math.sqrt(Math.max(0, variance)/(numberOfBlocks-1));
+  }
+
+  /**
+   * Gets the bin centers and the normalized probability density of the free times.
+   *
+   * @return double[2][numberOfBins]
+   */
+  public double[][] getFreeTimeDistribution() {
+    return distribution(freeTimeCounts, timeBinWidth);
+  }
+
+  /**
+   * Gets the bin centers and the normalized probability density of the free paths.
+   *
+   * @return double[2][numberOfBins]
+   */
+  public double[][] getFreePathDistribution() {
+    return distribution(freePathCounts, pathBinWidth);
+  }
+
+  double[][] distribution(long[] counts, double binWidth) {
+    double[][] data = new double[2][counts.length];
+    double norm = (numberOfFreeTimes>0) ? 1.0/(numberOfFreeTimes*binWidth) : 0;
+    for(int k = 0;k<counts.length;k++) {
+      data[0][k] = (k+0.5)*binWidth;
+      data[1][k] = counts[k]*norm;
+    }
+    return data;
+  }
+
+  /**
+   * Replaces the data in the frame with the free time histogram.
+   *
+   * @param frame HistogramFrame
+   */
+  public void fillFreeTimes(HistogramFrame frame) {
+    fill(frame, freeTimeCounts, timeBinWidth);
+  }
+
+  /**
+   * Replaces the data in the frame with the free path histogram.
+   *
+   * @param frame HistogramFrame
+   */
+  public void fillFreePaths(HistogramFrame frame) {
+    fill(frame, freePathCounts, pathBinWidth);
+  }
+
+  void fill(HistogramFrame frame, long[] counts, double binWidth) {
+    frame.clearData();
+    for(int k = 0;k<counts.length;k++) {
+      if(counts[k]>0) {
+        frame.append((k+0.5)*binWidth, counts[k]);
+      }
+    }
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,245 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.hd;
+import java.util.Random;
+import org.opensourcephysics.numerics.*;
+
+/**
+ * EventChainHardDisks samples hard disk configurations using straight event-chain Monte Carlo.
+ *
+ * A chain moves a randomly chosen disk in the +x or +y direction until it touches another
+ * disk. The move is then lifted to the disk that was hit, which continues in the same
+ * direction, until the total displacement of the chain equals chainLength. Chains alternate
+ * between the x and y directions. The disks are kept in a cell grid so that the next
+ * collision is found by looking only at cells in front of the moving disk.
+ *
+ * The pressure is found from the chain statistics:
+ * PA/NkT = 1 + (sum of the separations along the chain direction at each lift)/chainLength
+ *
+ * The positions are stored in the x and y arrays of a HardDisks object so that both
+ * models can work on the same configuration.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class EventChainHardDisks {
+  public double x[], y[];
+  public int N;
+  public double Lx, Ly;
+  public double chainLength = 1;
+  public int numberOfChains = 0;
+  public long numberOfLifts = 0;
+  public int numberOfJammedChains = 0;
+  public double liftSum = 0, displacementSum = 0;
+  public Random random = new Random();
+  int cellsX, cellsY;
+  double cellWidth, cellHeight;
+  int[] cell, cellHead, cellNext, cellPrevious;
+  boolean moveInX = true;
+
+  /**
+   * Uses the positions of the given hard disks.
+   *
+   * @param hd HardDisks
+   */
+  public void initialize(HardDisks hd) {
+    initialize(hd.x, hd.y, hd.N, hd.Lx, hd.Ly);
+  }
+
+  /**
+   * Uses the given positions. The disks must not overlap.
+   */
+  public void initialize(double[] x, double[] y, int N, double Lx, double Ly) {
+    this.x = x;
+    this.y = y;
+    this.N = N;
+    this.Lx = Lx;
+    this.Ly = Ly;
+    cellsX = Math.max(1, (int) Lx); // cells are at least one diameter wide
+    cellsY = Math.max(1, (int) Ly);
+    cellWidth = Lx/cellsX;
+    cellHeight = Ly/cellsY;
+    cell = new int[N];
+    cellNext = new int[N];
+    cellPrevious = new int[N];
+    cellHead = new int[cellsX*cellsY];
+    java.util.Arrays.fill(cellHead, -1);
+    for(int i = 0;i<N;i++) {
+      x[i] = PBC.position(x[i], Lx);
+      y[i] = PBC.position(y[i], Ly);
+      addToCell(i);
+    }
+    resetAverages();
+  }
+
+  public void resetAverages() {
+    numberOfChains = 0;
+    numberOfLifts = 0;
+    numberOfJammedChains = 0;
+    liftSum = 0;
+    displacementSum = 0;
+  }
+
+  /**
+   * Does one event chain.
+   */
+  public void step() {
+    boolean completed;
+    if(moveInX) {
+      completed = chain(x, y, Lx, Ly, cellsX, cellsY, 1, cellsX, cellWidth);
+    } else {
+      completed = chain(y, x, Ly, Lx, cellsY, cellsX, cellsX, 1, cellHeight);
+    }
+    moveInX = !moveInX;
+    if(completed) {
+      displacementSum += chainLength;
+      numberOfChains++;
+    } else {
+      numberOfJammedChains++;
+    }
+  }
+
+  /**
+   * Moves disks along the a direction until the chain length is used up.
+   * The cell with column ca and row cb has index ca*aStride+cb*bStride.
+   *
+   * A line of touching disks that wraps around the box, as in a perfect lattice row,
+   * cannot move. The chain is stopped and not counted if N lifts in a row have zero length.
+   *
+   * @return true if the chain was completed
+   */
+  boolean chain(double[] a, double[] b, double La, double Lb, int cellsA, int cellsB, int aStride, int bStride, double cellLength) {
+    int i = random.nextInt(N);
+    double remaining = chainLength;
+    double chainLiftSum = 0;
+    int chainLifts = 0, zeroLifts = 0;
+    while(true) {
+      int ca = (int) (a[i]/cellLength);
+      if(ca>=cellsA) {
+        ca = cellsA-1;
+      }
+      int cb = moveInX ? cell[i]/cellsX : cell[i]%cellsX;
+      double offset = a[i]-ca*cellLength; // position of disk i within its cell
+      double distance = remaining;
+      int target = -1;
+      for(int m = 0;m<=cellsA;m++) {
+        if(m*cellLength-offset-1>distance) {
+          break; // disks in this and later columns are too far away
+        }
+        for(int db = -1;db<=1;db++) {
+          int c = ((ca+m)%cellsA)*aStride+((cb+db+cellsB)%cellsB)*bStride;
+          for(int k = cellHead[c];k>=0;k = cellNext[k]) {
+            if(k==i) {
+              continue;
+            }
+            double separationB = PBC.separation(b[k]-b[i], Lb);
+            if(Math.abs(separationB)>=1) {
+              continue;
+            }
+            double ahead = a[k]-a[i];
+            ahead -= La*Math.floor(ahead/La); // distance ahead in [0, La)
+            double contact = Math.sqrt(1-separationB*separationB);
+            if(ahead>La-contact) {
+              ahead -= La; // k touches i from behind
+            }
+            double d = Math.max(0, ahead-contact);
+            if((ahead>=0)&&(d<distance)) {
+              distance = d;
+              target = k;
+            }
+          }
+        }
+      }
+      move(i, a, La, distance);
+      if(target<0) {
+        liftSum += chainLiftSum;
+        numberOfLifts += chainLifts;
+        return true;
+      }
+      zeroLifts = (distance>0) ? 0 : zeroLifts+1;
+      if(zeroLifts>=N) {
+        return false;
+      }
+      remaining -= distance;
+      double separationA = a[target]-a[i];
+      chainLiftSum += separationA-La*Math.floor(separationA/La+0.5);
+      chainLifts++;
+      i = target;
+    }
+  }
+
+  void move(int i, double[] a, double La, double distance) {
+    a[i] = PBC.position(a[i]+distance, La);
+    int c = cellIndex(i);
+    if(c!=cell[i]) {
+      removeFromCell(i);
+      addToCell(i);
+    }
+  }
+
+  int cellIndex(int i) {
+    int cx = Math.min((int) (x[i]/cellWidth), cellsX-1);
+    int cy = Math.min((int) (y[i]/cellHeight), cellsY-1);
+    return cx+cellsX*cy;
+  }
+
+  void addToCell(int i) {
+    int c = cellIndex(i);
+    cell[i] = c;
+    cellPrevious[i] = -1;
+    cellNext[i] = cellHead[c];
+    if(cellHead[c]>=0) {
+      cellPrevious[cellHead[c]] = i;
+    }
+    cellHead[c] = i;
+  }
+
+  void removeFromCell(int i) {
+    if(cellPrevious[i]>=0) {
+      cellNext[cellPrevious[i]] = cellNext[i];
+    } else {
+      cellHead[cell[i]] = cellNext[i];
+    }
+    if(cellNext[i]>=0) {
+      cellPrevious[cellNext[i]] = cellPrevious[i];
+    }
+  }
+
+  /**
+   * Computes the pressure from the chain statistics.
+   *
+   * @return PA/NkT
+   */
+  public double pressure() {
+    return 1+liftSum/displacementSum;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,331 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.hd;
+import org.opensourcephysics.numerics.*;
+
+/**
+ * EventDrivenHardDisks finds the next collision from a priority queue of predicted events.
+ *
+ * Each disk's earliest predicted event is stored in an indexed binary heap, so the next
+ * event is found in O(1) time and a changed prediction is stored in O(log N) time.
+ * Predictions that involve a disk that has collided since the prediction was made are not
+ * removed. Instead, the collision count of the partner is stored with each prediction and a
+ * prediction is recomputed when it reaches the top of the queue and the count has changed.
+ *
+ * Each disk carries its own clock. The position x[i], y[i] is the position at time
+ * localTime[i] and is brought up to date only when disk i takes part in an event, so the
+ * cost of an event does not grow with N. Call synchronize to move all disks to the time t
+ * before they are drawn; draw only reads the positions.
+ *
+ * If useCells is true and the box holds at least three cells of width one diameter in each
+ * direction, the disks are sorted into a cell grid. A disk then looks for partners only in
+ * its own and the eight neighboring cells, and the crossing of a cell boundary is scheduled
+ * as an event. Otherwise every pair of disks and all periodic images are checked.
+ *
+ * Unlike HardDisks, collisionTime[i] is the absolute time of the next event of disk i.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class EventDrivenHardDisks extends HardDisks {
+  static final int NO_CROSSING = 0, CROSS_X = 1, CROSS_Y = 2;
+  public boolean useCells = true;
+  public int[] collisionCount;   // number of collisions of each disk
+  public int[] partnerCount;     // collision count of the partner when the prediction was made
+  public double[] localTime;     // time at which x[i] and y[i] are valid
+  public int[] crossing;         // NO_CROSSING if the next event of disk i is a collision
+  public IndexedMinHeap queue;
+  public int numberOfCrossings = 0;
+  int cellsX, cellsY;            // zero if cells are not used
+  double cellWidth, cellHeight;
+  int[] cell, cellHead, cellNext, cellPrevious;
+  double lastCollisionTime;
+
+  public void initialize(String configuration) {
+    queue = null;
+    numberOfCrossings = 0;
+    lastCollisionTime = 0;
+    super.initialize(configuration);
+  }
+
+  /**
+   * Sorts the disks into cells and predicts the first event of each disk.
+   */
+  public void findCollisionTimes() {
+    collisionCount = new int[N];
+    partnerCount = new int[N];
+    localTime = new double[N];
+    crossing = new int[N];
+    cellsX = useCells ? (int) Lx : 0; // cells are at least one diameter wide
+    cellsY = useCells ? (int) Ly : 0;
+    if((cellsX<3)||(cellsY<3)) {
+      cellsX = cellsY = 0;
+    } else {
+      fillCells();
+    }
+    queue = null;
+    for(int i = 0;i<N;i++) {
+      localTime[i] = t;
+      predictEvent(i);
+    }
+    queue = new IndexedMinHeap(collisionTime);
+  }
+
+  void fillCells() {
+    cellWidth = Lx/cellsX;
+    cellHeight = Ly/cellsY;
+    cell = new int[N];
+    cellNext = new int[N];
+    cellPrevious = new int[N];
+    cellHead = new int[cellsX*cellsY];
+    java.util.Arrays.fill(cellHead, -1);
+    for(int i = 0;i<N;i++) {
+      int cx = Math.min((int) (x[i]/cellWidth), cellsX-1);
+      int cy = Math.min((int) (y[i]/cellHeight), cellsY-1);
+      addToCell(i, cx+cellsX*cy);
+    }
+  }
+
+  void addToCell(int i, int c) {
+    cell[i] = c;
+    cellPrevious[i] = -1;
+    cellNext[i] = cellHead[c];
+    if(cellHead[c]>=0) {
+      cellPrevious[cellHead[c]] = i;
+    }
+    cellHead[c] = i;
+  }
+
+  void removeFromCell(int i) {
+    if(cellPrevious[i]>=0) {
+      cellNext[cellPrevious[i]] = cellNext[i];
+    } else {
+      cellHead[cell[i]] = cellNext[i];
+    }
+    if(cellNext[i]>=0) {
+      cellPrevious[cellNext[i]] = cellPrevious[i];
+    }
+  }
+
+  /**
+   * Sets the time to zero and measures event times from the new origin.
+   */
+  public void resetAverages() {
+    if(queue!=null) {
+      for(int i = 0;i<N;i++) {
+        localTime[i] -= t;
+        if(collisionTime[i]<bigTime) {
+          collisionTime[i] -= t;
+        }
+      }
+      lastCollisionTime -= t;
+      queue = new IndexedMinHeap(collisionTime);
+    }
+    super.resetAverages();
+  }
+
+  /**
+   * Processes events until the next collision.
+   */
+  public void step() {
+    while(true) {
+      int i = queue.peek();
+      if(collisionTime[i]>=bigTime) { // no disks will collide
+        t += bigTime;
+        return;
+      }
+      t = collisionTime[i];
+      update(i);
+      if(crossing[i]!=NO_CROSSING) {
+        crossCell(i);
+        predictEvent(i);
+        continue;
+      }
+      int j = partner[i];
+      if(partnerCount[i]!=collisionCount[j]) { // partner has collided since the prediction
+        predictEvent(i);
+        continue;
+      }
+      update(j);
+      nextCollider = i;
+      nextPartner = j;
+      timeToCollision = t-lastCollisionTime;
+      lastCollisionTime = t;
+      contact();
+      collisionCount[i]++;
+      collisionCount[j]++;
+      predictEvent(i);
+      predictEvent(j);
+      numberOfCollisions++;
+      return;
+    }
+  }
+
+  /**
+   * Moves disk i to the current time.
+   */
+  void update(int i) {
+    double dt = t-localTime[i];
+    if(cellsX>0) { // disk stays inside its cell until its next crossing
+      x[i] += vx[i]*dt;
+      y[i] += vy[i]*dt;
+    } else {
+      x[i] = PBC.position(x[i]+vx[i]*dt, Lx);
+      y[i] = PBC.position(y[i]+vy[i]*dt, Ly);
+    }
+    localTime[i] = t;
+  }
+
+  /**
+   * Moves all disks to the current time.
+   */
+  public void synchronize() {
+    for(int i = 0;i<N;i++) {
+      update(i);
+    }
+  }
+
+  /**
+   * Moves disk i into the neighboring cell and places it on the shared boundary.
+   */
+  void crossCell(int i) {
+    int cx = cell[i]%cellsX;
+    int cy = cell[i]/cellsX;
+    if(crossing[i]==CROSS_X) {
+      if(vx[i]>0) {
+        cx = (cx+1)%cellsX;
+        x[i] = cx*cellWidth;
+      } else {
+        cx = (cx-1+cellsX)%cellsX;
+        x[i] = (cx+1)*cellWidth;
+      }
+    } else {
+      if(vy[i]>0) {
+        cy = (cy+1)%cellsY;
+        y[i] = cy*cellHeight;
+      } else {
+        cy = (cy-1+cellsY)%cellsY;
+        y[i] = (cy+1)*cellHeight;
+      }
+    }
+    removeFromCell(i);
+    addToCell(i, cx+cellsX*cy);
+    numberOfCrossings++;
+  }
+
+  /**
+   * Finds the next event of disk i and updates the queue. Disk i must be at the current time.
+   *
+   * @param i int
+   */
+  public void predictEvent(int i) {
+    double minimumTime = bigTime;
+    int minimumPartner = i;
+    crossing[i] = NO_CROSSING;
+    if(cellsX>0) {
+      int cx = cell[i]%cellsX;
+      int cy = cell[i]/cellsX;
+      for(int dcx = -1;dcx<=1;dcx++) {
+        for(int dcy = -1;dcy<=1;dcy++) {
+          int c = (cx+dcx+cellsX)%cellsX+cellsX*((cy+dcy+cellsY)%cellsY);
+          for(int k = cellHead[c];k>=0;k = cellNext[k]) {
+            if(k!=i) {
+              double tik = pairCollisionTime(i, k, 0);
+              if(tik<minimumTime) {
+                minimumTime = tik;
+                minimumPartner = k;
+              }
+            }
+          }
+        }
+      }
+      double xEdge = (vx[i]>0) ? (cx+1)*cellWidth : cx*cellWidth;
+      double yEdge = (vy[i]>0) ? (cy+1)*cellHeight : cy*cellHeight;
+      double tx = (vx[i]!=0) ? Math.max(0, (xEdge-x[i])/vx[i]) : bigTime;
+      double ty = (vy[i]!=0) ? Math.max(0, (yEdge-y[i])/vy[i]) : bigTime;
+      if(tx<minimumTime) {
+        minimumTime = tx;
+        crossing[i] = CROSS_X;
+      }
+      if(ty<minimumTime) {
+        minimumTime = ty;
+        crossing[i] = CROSS_Y;
+      }
+    } else {
+      for(int k = 0;k<N;k++) {
+        if(k!=i) {
+          double tik = pairCollisionTime(i, k, 1);
+          if(tik<minimumTime) {
+            minimumTime = tik;
+            minimumPartner = k;
+          }
+        }
+      }
+    }
+    partner[i] = minimumPartner;
+    partnerCount[i] = collisionCount[minimumPartner];
+    collisionTime[i] = (minimumTime<bigTime) ? t+minimumTime : bigTime;
+    if(queue!=null) {
+      queue.setKey(i, collisionTime[i]);
+    }
+  }
+
+  /**
+   * Computes the time from now until disks i and k collide. Disk i must be at the current time.
+   *
+   * @param images 0 to check only the nearest image of k, 1 to also check neighboring images
+   * @return the time or bigTime if the disks do not collide
+   */
+  public double pairCollisionTime(int i, int k, int images) {
+    double dvx = vx[i]-vx[k];
+    double dvy = vy[i]-vy[k];
+    double v2 = dvx*dvx+dvy*dvy;
+    double dtk = t-localTime[k];
+    double dx0 = PBC.separation(x[i]-x[k]-vx[k]*dtk, Lx);
+    double dy0 = PBC.separation(y[i]-y[k]-vy[k]*dtk, Ly);
+    double tik = bigTime;
+    for(int xCell = -images;xCell<=images;xCell++) {
+      for(int yCell = -images;yCell<=images;yCell++) {
+        double dx = dx0+xCell*Lx;
+        double dy = dy0+yCell*Ly;
+        double bij = dx*dvx+dy*dvy;
+        if(bij<0) {
+          double discriminant = bij*bij-v2*(dx*dx+dy*dy-1);
+          if(discriminant>0) {
+            tik = Math.min(tik, Math.max(0, (-bij-Math.sqrt(discriminant))/v2));
+          }
+        }
+      }
+    }
+    return tik;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -7,8 +7,10 @@
 
 package org.opensourcephysics.sip.ch08.hd;
 import java.awt.*;
+import java.util.Random;
 import org.opensourcephysics.display.*;
 import org.opensourcephysics.numerics.*;
+import org.opensourcephysics.sip.ch08.PoissonDiskSampler;
 
 /**
  * HardDisks evolves a two-dimensional system of hard disks.
@@ -30,6 +32,8 @@ public class HardDisks implements Drawable {
   public double bigTime = 1.0E10;
   public double temperature;
   public int numberOfCollisions = 0;
+  public Random random = new Random(); // set the seed for reproducible initial conditions
+  public CollisionStatistics statistics; // optional accumulators updated at each collision
   // end break
 
   // start break
@@ -45,13 +49,19 @@ public class HardDisks implements Drawable {
     if(configuration.equals("regular")) {
       setRegularPositions();
     } else {
-      setRandomPositions();
+      setPoissonDiskPositions();
     }
     setVelocities();
+    findCollisionTimes();
+  }
+
+  /**
+   * Finds the initial collision times for all particles.
+   */
+  public void findCollisionTimes() {
     for(int i = 0;i<N;++i) {
       collisionTime[i] = bigTime; // sets unknown collision times to a big number
     }
-    // finds initial collision times for all particles
     for(int i = 0;i<N-1;i++) {
       for(int j = i+1;j<N;j++) {
         checkCollision(i, j);
@@ -60,6 +70,9 @@ public class HardDisks implements Drawable {
   }
 
   public void resetAverages() {
+    if(statistics!=null) {
+      statistics.resetAverages(t);
+    }
     t = 0;
     virialSum = 0;
   }
@@ -71,8 +84,8 @@ public class HardDisks implements Drawable {
     double vxSum = 0;
     double vySum = 0;
     for(int i = 0;i<N;++i) {
-      vx[i] = Math.random()-1.0;
-      vy[i] = Math.random()-1.0;
+      vx[i] = random.nextDouble()-1.0;
+      vy[i] = random.nextDouble()-1.0;
       vxSum += vx[i];
       vySum += vy[i];
     }
@@ -92,8 +105,8 @@ public class HardDisks implements Drawable {
     for(int i = 0;i<N;++i) {
       do {
         overlap = false;
-        x[i] = Lx*Math.random();
-        y[i] = Ly*Math.random();
+        x[i] = Lx*random.nextDouble();
+        y[i] = Ly*random.nextDouble();
         int j = 0;
         while((j<i)&&!overlap) {
           double dx = PBC.separation(x[i]-x[j], Lx);
@@ -107,6 +120,15 @@ public class HardDisks implements Drawable {
     }
   }
 
+  /**
+   * Places disks at random without overlap in a time proportional to N.
+   *
+   * @throws IllegalStateException if the density is too high for random positions
+   */
+  public void setPoissonDiskPositions() {
+    new PoissonDiskSampler(random).setPositions(x, y, N, Lx, Ly, 1.0);
+  }
+
   public void setRegularPositions() {
     double dnx = Math.sqrt(N);
     int nx = (int) dnx;
@@ -181,6 +203,12 @@ public class HardDisks implements Drawable {
     numberOfCollisions++;
   }
 
+  /**
+   * Brings the positions of all disks up to the time t. Call before the disks are drawn.
+   * The positions of HardDisks are always current, so this method does nothing.
+   */
+  public void synchronize() {}
+
   public void minimumCollisionTime() {
     timeToCollision = bigTime; // sets collision time very large
     // so that can find minimum collision time
@@ -210,6 +238,11 @@ public class HardDisks implements Drawable {
     double factor = dx*dvx+dy*dvy;
     double delvx = -factor*dx;
     double delvy = -factor*dy;
+    if(statistics!=null) { // speeds before the collision give the free paths
+      double speedCollider = Math.sqrt(vx[nextCollider]*vx[nextCollider]+vy[nextCollider]*vy[nextCollider]);
+      double speedPartner = Math.sqrt(vx[nextPartner]*vx[nextPartner]+vy[nextPartner]*vy[nextPartner]);
+      statistics.record(t, nextCollider, nextPartner, speedCollider, speedPartner, delvx*dx+delvy*dy);
+    }
     vx[nextCollider] += delvx;
     vy[nextCollider] += delvy;
     vx[nextPartner] -= delvx;
@@ -19,6 +19,7 @@ import org.opensourcephysics.display.GUIUtils;
 public class HardDisksApp extends AbstractSimulation {
   HardDisks hd = new HardDisks();
   PlotFrame pressureData = new PlotFrame("time", "PA/NkT", "Pressure");
+  HistogramFrame freePathHistogram = new HistogramFrame("free path", "H", "Free path histogram");
   DisplayFrame display = new DisplayFrame("x", "y", "Lennard-Jones Particles");
   double timeToPlot;
 
@@ -26,11 +27,15 @@ public class HardDisksApp extends AbstractSimulation {
    * Initializes the model by reading the number of particles.
    */
   public void initialize() {
+    display.removeDrawable(hd);
+    hd = control.getBoolean("event queue") ? new EventDrivenHardDisks() : new HardDisks();
     hd.N = control.getInt("N");
     hd.Lx = control.getDouble("Lx");
     hd.Ly = control.getDouble("Ly");
     String configuration = control.getString("initial configuration");
     hd.initialize(configuration);
+    hd.statistics = new CollisionStatistics(hd.N, hd.temperature, 0.05, 0.05, 400);
+    freePathHistogram.setBinWidth(0.05);
     display.addDrawable(hd);
     display.setPreferredMinMax(0, hd.Lx, 0, hd.Ly);
     display.setSquareAspect(true);
@@ -45,11 +50,24 @@ public class HardDisksApp extends AbstractSimulation {
     while(hd.t<timeToPlot) { // plot at roughly equal time intervals
       hd.step();
     }
+    hd.synchronize(); // brings every disk to the time t before the display is repainted
     timeToPlot++;
     pressureData.append(0, hd.t, hd.pressure());
     display.setMessage("Number of Collisions =  "+hd.numberOfCollisions);
   }
 
+  /**
+   * Shows the collision statistics when the simulation is stopped.
+   */
+  public void stop() {
+    CollisionStatistics statistics = hd.statistics;
+    statistics.fillFreePaths(freePathHistogram);
+    control.println("mean free time = "+decimalFormat.format(statistics.getMeanFreeTime()));
+    control.println("mean free path = "+decimalFormat.format(statistics.getMeanFreePath()));
+    control.println("PA/NkT = "+decimalFormat.format(statistics.getPressure())+" +/- "
+                    +decimalFormat.format(statistics.getPressureError()));
+  }
+
   /**
    * Resets the hard disks model to its default state.
    */
@@ -59,6 +77,7 @@ public class HardDisksApp extends AbstractSimulation {
     control.setValue("Lx", 8.0);
     control.setValue("Ly", 8.0);
     control.setValue("initial configuration", "regular");
+    control.setValue("event queue", true);
     initialize();
   }
 
@@ -0,0 +1,126 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.hd;
+
+/**
+ * IndexedMinHeap is a binary heap of the integers 0 ... n-1 ordered by a key for each integer.
+ *
+ * The key of any integer can be changed in O(log n) time because the position of each
+ * integer in the heap is stored.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class IndexedMinHeap {
+  double[] key;
+  int[] heap;     // heap[k] is the integer at position k
+  int[] position; // position[i] is the position of integer i in the heap
+
+  /**
+   * Creates a heap containing 0 ... n-1 with the given keys.
+   *
+   * @param keys the initial keys; the array is copied
+   */
+  public IndexedMinHeap(double[] keys) {
+    int n = keys.length;
+    key = keys.clone();
+    heap = new int[n];
+    position = new int[n];
+    for(int i = 0;i<n;i++) {
+      heap[i] = i;
+      position[i] = i;
+    }
+    for(int k = n/2-1;k>=0;k--) {
+      siftDown(k);
+    }
+  }
+
+  /**
+   * Gets the integer with the smallest key.
+   *
+   * @return int
+   */
+  public int peek() {
+    return heap[0];
+  }
+
+  public double getKey(int i) {
+    return key[i];
+  }
+
+  /**
+   * Changes the key of integer i and restores the heap order.
+   */
+  public void setKey(int i, double value) {
+    double old = key[i];
+    key[i] = value;
+    if(value<old) {
+      siftUp(position[i]);
+    } else if(value>old) {
+      siftDown(position[i]);
+    }
+  }
+
+  private void siftUp(int k) {
+    int i = heap[k];
+    while(k>0) {
+      int parent = (k-1)/2;
+      if(key[heap[parent]]<=key[i]) {
+        break;
+      }
+      heap[k] = heap[parent];
+      position[heap[k]] = k;
+      k = parent;
+    }
+    heap[k] = i;
+    position[i] = k;
+  }
+
+  private void siftDown(int k) {
+    int n = heap.length;
+    int i = heap[k];
+    while(2*k+1<n) {
+      int child = 2*k+1;
+      if((child+1<n)&&(key[heap[child+1]]<key[heap[child]])) {
+        child++;
+      }
+      if(key[i]<=key[heap[child]]) {
+        break;
+      }
+      heap[k] = heap[child];
+      position[heap[k]] = k;
+      k = child;
+    }
+    heap[k] = i;
+    position[i] = k;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,85 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+
+/**
+ * LJForceKernel computes Lennard-Jones pair forces for LJParticles.
+ *
+ * The scalar kernel is built into LJParticles. Subclasses provide alternative implementations
+ * of the same pair loops, such as VectorLJForceKernel, which uses the Java Vector API and is
+ * kept in the optional source root src-vector because it needs the jdk.incubator.vector module.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public abstract class LJForceKernel {
+
+  /**
+   * Adds the forces of all pairs (i, j>i) with i = first, first+stride, first+2*stride, ...
+   *
+   * @param md the particles
+   * @param fx the x-component of the force on each particle
+   * @param fy the y-component of the force on each particle
+   * @param sums the potential energy and the virial are added to sums[0] and sums[1]
+   */
+  public abstract void allPairsForces(LJParticles md, int first, int stride, double[] fx, double[] fy, double[] sums);
+
+  /**
+   * Adds the forces of the neighbor list pairs listed under particles first to last-1.
+   *
+   * Pairs farther apart than the cutoff are ignored.
+   *
+   * @param md the particles
+   * @param fx the x-component of the force on each particle
+   * @param fy the y-component of the force on each particle
+   * @param sums the potential energy and the virial are added to sums[0] and sums[1]
+   */
+  public abstract void neighborListForces(LJParticles md, int first, int last, double[] fx, double[] fy, double[] sums);
+
+  /**
+   * Creates the Vector API kernel.
+   *
+   * The kernel is loaded by name so that this class does not depend on the incubator module.
+   *
+   * @return the kernel or null if the src-vector classes or the jdk.incubator.vector module are not available
+   */
+  public static LJForceKernel createVectorKernel() {
+    try {
+      Class<?> c = Class.forName("org.opensourcephysics.sip.ch08.md.VectorLJForceKernel");
+      return(LJForceKernel) c.getDeclaredConstructor().newInstance();
+    } catch(Exception ex) {
+      return null;
+    } catch(LinkageError err) { // module not present at run time
+      return null;
+    }
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
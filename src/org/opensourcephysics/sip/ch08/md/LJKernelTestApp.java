@@ -0,0 +1,119 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+import org.opensourcephysics.controls.*;
+
+/**
+ * LJKernelTestApp checks the Vector API force kernel against the scalar loops in LJParticles.
+ *
+ * Run with the compiled src-vector classes on the class path and --add-modules jdk.incubator.vector
+ * to test the vector kernel. The kernels pass if the forces, potential energy and virial agree to
+ * a relative error of TOLERANCE.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class LJKernelTestApp extends AbstractCalculation {
+  static final double TOLERANCE = 1.0e-10;
+
+  public void calculate() {
+    control.clearMessages();
+    if(LJForceKernel.createVectorKernel()==null) {
+      control.println("Vector API not available; only the scalar kernel will be used.");
+      return;
+    }
+    LJParticles md = new LJParticles();
+    md.nx = control.getInt("nx");
+    md.ny = control.getInt("ny");
+    md.Lx = control.getDouble("Lx");
+    md.Ly = control.getDouble("Ly");
+    md.initialKineticEnergy = 1.0;
+    md.initialConfiguration = "triangular";
+    md.initialize();
+    for(int i = 0;i<md.N;i++) { // displace particles from the lattice
+      md.x[i] += 0.2*(Math.random()-0.5);
+      md.y[i] += 0.2*(Math.random()-0.5);
+    }
+    boolean pass = compare(md, 0);
+    pass &= compare(md, control.getDouble("cutoff radius"));
+    control.println(pass ? "PASS" : "FAIL");
+  }
+
+  /**
+   * Compares the vector kernel with the scalar kernel.
+   *
+   * @param md the particles
+   * @param cutoff the cutoff radius or 0 for no cutoff
+   * @return true if the kernels agree within TOLERANCE
+   */
+  boolean compare(LJParticles md, double cutoff) {
+    md.cutoff = cutoff;
+    md.useVectorKernel = false;
+    md.resetAverages();
+    md.computeAcceleration();
+    double[] ax = md.ax.clone(), ay = md.ay.clone();
+    double potentialEnergy = md.totalPotentialEnergyAccumulator, virial = md.virialAccumulator;
+    md.useVectorKernel = true;
+    md.resetAverages();
+    md.computeAcceleration();
+    double maxError = 0, maxForce = 0;
+    for(int i = 0;i<md.N;i++) {
+      maxError = Math.max(maxError, Math.abs(ax[i]-md.ax[i])+Math.abs(ay[i]-md.ay[i]));
+      maxForce = Math.max(maxForce, Math.abs(ax[i])+Math.abs(ay[i]));
+    }
+    double forceError = relativeError(maxError, maxForce);
+    double potentialEnergyError = relativeError(Math.abs(potentialEnergy-md.totalPotentialEnergyAccumulator), Math.abs(potentialEnergy));
+    double virialError = relativeError(Math.abs(virial-md.virialAccumulator), Math.abs(virial));
+    boolean pass = (forceError<=TOLERANCE)&&(potentialEnergyError<=TOLERANCE)&&(virialError<=TOLERANCE);
+    control.println("cutoff = "+cutoff+(pass ? "  PASS" : "  FAIL"));
+    control.println("  relative force error = "+forceError);
+    control.println("  relative potential energy error = "+potentialEnergyError);
+    control.println("  relative virial error = "+virialError);
+    return pass;
+  }
+
+  static double relativeError(double difference, double scale) {
+    return(scale>0) ? difference/scale : difference;
+  }
+
+  public void reset() {
+    control.setValue("nx", 40);
+    control.setValue("ny", 40);
+    control.setValue("Lx", 50.0);
+    control.setValue("Ly", 45.0);
+    control.setValue("cutoff radius", 3.0);
+  }
+
+  public static void main(String[] args) {
+    CalculationControl.createApp(new LJKernelTestApp());
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -7,21 +7,26 @@
 
 package org.opensourcephysics.sip.ch08.md;
 import java.awt.*;
+import java.util.Random;
 import org.opensourcephysics.display.*;
 import org.opensourcephysics.frames.*;
-import org.opensourcephysics.numerics.*;
+import org.opensourcephysics.sip.ch08.PoissonDiskSampler;
 
 /**
  * LJParticlesApp evolves a two-dimensional system of interacting particles
- * via the Lennard-Jones potential using a Verlet ODESolver.
+ * via the Lennard-Jones potential using the velocity Verlet algorithm.
+ *
+ * Positions, velocities, and accelerations are stored in separate arrays and are
+ * updated in place. getState and setState pack and unpack the (x, vx, y, vy, ..., t)
+ * layout used by earlier versions so that saved files still load.
  *
  * getHeatCapacity method corrected based on bug report by Mike Cooke.
  *
  * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
  * @version 1.1 revised 01/14/06
  */
-public class LJParticles implements Drawable, ODE {
-  public double state[];
+public class LJParticles implements Drawable {
+  public double x[], y[], vx[], vy[];
   public double ax[], ay[];
   public int N, nx, ny; // number of particles, number per row, number per column
   public double Lx, Ly;
@@ -35,14 +40,26 @@ public class LJParticles implements Drawable, ODE {
   public double virialAccumulator;
   public String initialConfiguration;
   public double radius = 0.5; // radius of particles on screen
-  Verlet odeSolver = new Verlet(this);
+  public double cutoff = 0;   // interaction cutoff radius; 0 sums over all pairs
+  public double skin = 0.3;   // neighbor list is rebuilt when a particle moves more than skin/2
+  public NeighborList neighborList = new NeighborList();
+  public int numberOfThreads = 1; // threads used to compute the forces
+  ParallelForces parallelForces;
+  public boolean useVectorKernel = false; // use the Vector API kernel if it is available
+  public VelocityHistogram xVelocityHistogram = new VelocityHistogram(0.1);
+  public RadialDistribution radialDistribution = new RadialDistribution(); // sampled if stride > 0
+  public StructureFactor structureFactor = new StructureFactor();          // sampled if stride > 0
+  public Random random = new Random(); // set the seed for reproducible initial conditions
 
   public void initialize() {
     N = nx*ny;
     t = 0;
     rho = N/(Lx*Ly);
     resetAverages();
-    state = new double[1+4*N];
+    x = new double[N];
+    y = new double[N];
+    vx = new double[N];
+    vy = new double[N];
     ax = new double[N];
     ay = new double[N];
     if(initialConfiguration.equals("triangular")) {
@@ -50,11 +67,10 @@ public class LJParticles implements Drawable, ODE {
     } else if(initialConfiguration.equals("rectangular")) {
       setRectangularLattice();
     } else {
-      setRandomPositions();
+      setPoissonDiskPositions();
     }
     setVelocities();
     computeAcceleration();
-    odeSolver.setStepSize(dt);
   }
 
   // end break
@@ -66,12 +82,12 @@ public class LJParticles implements Drawable, ODE {
     for(int i = 0;i<N;++i) {
       do {
         overlap = false;
-        state[4*i] = Lx*Math.random();   // x
-        state[4*i+2] = Ly*Math.random(); // y
+        x[i] = Lx*random.nextDouble();   // x
+        y[i] = Ly*random.nextDouble(); // y
         int j = 0;
         while((j<i)&&!overlap) {
-          double dx = pbcSeparation(state[4*i]-state[4*j], Lx);
-          double dy = pbcSeparation(state[4*i+2]-state[4*j+2], Ly);
+          double dx = pbcSeparation(x[i]-x[j], Lx);
+          double dy = pbcSeparation(y[i]-y[j], Ly);
           if(dx*dx+dy*dy<rMinimumSquared) {
             overlap = true;
           }
@@ -81,6 +97,15 @@ public class LJParticles implements Drawable, ODE {
     }
   }
 
+  /**
+   * Places particles at random, but not closer than 2^(1/6), in a time proportional to N.
+   *
+   * @throws IllegalStateException if the density is too high for random positions
+   */
+  public void setPoissonDiskPositions() {
+    new PoissonDiskSampler(random).setPositions(x, y, N, Lx, Ly, Math.pow(2.0, 1.0/6.0));
+  }
+
   // end break
   // start break
   // setRectangularLattice
@@ -90,8 +115,8 @@ public class LJParticles implements Drawable, ODE {
     for(int ix = 0;ix<nx;++ix) {   // loop through particles in a row
       for(int iy = 0;iy<ny;++iy) { // loop through rows
         int i = ix+iy*ny;
-        state[4*i] = dx*(ix+0.5);
-        state[4*i+2] = dy*(iy+0.5);
+        x[i] = dx*(ix+0.5);
+        y[i] = dy*(iy+0.5);
       }
     }
   }
@@ -105,11 +130,11 @@ public class LJParticles implements Drawable, ODE {
     for(int ix = 0;ix<nx;++ix) {
       for(int iy = 0;iy<ny;++iy) {
         int i = ix+iy*ny;
-        state[4*i+2] = dy*(iy+0.5);
+        y[i] = dy*(iy+0.5);
         if(iy%2==0) {
-          state[4*i] = dx*(ix+0.25);
+          x[i] = dx*(ix+0.25);
         } else {
-          state[4*i] = dx*(ix+0.75);
+          x[i] = dx*(ix+0.75);
         }
       }
     }
@@ -122,27 +147,27 @@ public class LJParticles implements Drawable, ODE {
     double vxSum = 0.0;
     double vySum = 0.0;
     for(int i = 0;i<N;++i) {            // assign random initial velocities
-      state[4*i+1] = Math.random()-0.5; // vx
-      state[4*i+3] = Math.random()-0.5; // vy
-      vxSum += state[4*i+1];
-      vySum += state[4*i+3];
+      vx[i] = random.nextDouble()-0.5; // vx
+      vy[i] = random.nextDouble()-0.5; // vy
+      vxSum += vx[i];
+      vySum += vy[i];
     }
     // zero center of mass momentum
     double vxcm = vxSum/N; // center of mass momentum (velocity)
     double vycm = vySum/N;
     for(int i = 0;i<N;++i) {
-      state[4*i+1] -= vxcm;
-      state[4*i+3] -= vycm;
+      vx[i] -= vxcm;
+      vy[i] -= vycm;
     }
     double v2sum = 0; // rescale velocities to obtain desired initial kinetic energy
     for(int i = 0;i<N;++i) {
-      v2sum += state[4*i+1]*state[4*i+1]+state[4*i+3]*state[4*i+3];
+      v2sum += vx[i]*vx[i]+vy[i]*vy[i];
     }
     double kineticEnergyPerParticle = 0.5*v2sum/N;
     double rescale = Math.sqrt(initialKineticEnergy/kineticEnergyPerParticle);
     for(int i = 0;i<N;++i) {
-      state[4*i+1] *= rescale;
-      state[4*i+3] *= rescale;
+      vx[i] *= rescale;
+      vy[i] *= rescale;
     }
   }
 
@@ -181,12 +206,37 @@ public class LJParticles implements Drawable, ODE {
      return N/denom;
   }
 
+  /**
+   * Gets g(r) accumulated since the averages were reset.
+   *
+   * The corresponding radii are given by radialDistribution.getR().
+   *
+   * @return double[]
+   */
+  public double[] getRadialDistribution() {
+    return radialDistribution.getG();
+  }
+
+  /**
+   * Gets S(k) accumulated since the averages were reset.
+   *
+   * The corresponding wave numbers are given by structureFactor.getK().
+   *
+   * @return double[]
+   */
+  public double[] getStructureFactor() {
+    return structureFactor.getS();
+  }
+
   public void resetAverages() {
     steps = 0;
     virialAccumulator = 0;
     totalPotentialEnergyAccumulator = 0;
     totalKineticEnergyAccumulator = 0;
     totalKineticEnergySquaredAccumulator = 0;
+    xVelocityHistogram.clear();
+    radialDistribution.clear();
+    structureFactor.clear();
   }
 
   // end break
@@ -197,10 +247,31 @@ public class LJParticles implements Drawable, ODE {
       ax[i] = 0;
       ay[i] = 0;
     }
+    if(numberOfThreads>1) {
+      if((parallelForces==null)||(parallelForces.numberOfThreads!=numberOfThreads)) {
+        if(parallelForces!=null) {
+          parallelForces.shutdown();
+        }
+        parallelForces = new ParallelForces(this, numberOfThreads);
+      }
+      parallelForces.computeAcceleration();
+      return;
+    }
+    if(cutoff>0) {
+      computeAccelerationWithCutoff();
+      return;
+    }
+    if(getVectorKernel()!=null) {
+      double[] sums = new double[2];
+      VectorKernelHolder.kernel.allPairsForces(this, 0, 1, ax, ay, sums);
+      totalPotentialEnergyAccumulator += sums[0];
+      virialAccumulator += sums[1];
+      return;
+    }
     for(int i = 0;i<N-1;i++) {
       for(int j = i+1;j<N;j++) {
-        double dx = pbcSeparation(state[4*i]-state[4*j], Lx);
-        double dy = pbcSeparation(state[4*i+2]-state[4*j+2], Ly);
+        double dx = pbcSeparation(x[i]-x[j], Lx);
+        double dy = pbcSeparation(y[i]-y[j], Ly);
         double r2 = dx*dx+dy*dy;
         double oneOverR2 = 1.0/r2;
         double oneOverR6 = oneOverR2*oneOverR2*oneOverR2;
@@ -217,6 +288,148 @@ public class LJParticles implements Drawable, ODE {
     }
   }
 
+  /**
+   * Computes the accelerations using the Verlet neighbor list.
+   *
+   * Interactions beyond the cutoff are neglected and the energy and virial
+   * accumulators are corrected assuming g(r) = 1 beyond the cutoff.
+   */
+  public void computeAccelerationWithCutoff() {
+    neighborList.update(x, y, N, Lx, Ly, cutoff, skin);
+    double[] sums = new double[2];
+    neighborListForces(0, N, ax, ay, sums);
+    totalPotentialEnergyAccumulator += sums[0]+getPotentialEnergyTailCorrection();
+    virialAccumulator += sums[1]+getVirialTailCorrection();
+  }
+
+  /**
+   * Adds the forces of the neighbor list pairs listed under particles first to last-1.
+   *
+   * @param fx the x-component of the force on each particle
+   * @param fy the y-component of the force on each particle
+   * @param sums the potential energy and the virial are added to sums[0] and sums[1]
+   */
+  void neighborListForces(int first, int last, double[] fx, double[] fy, double[] sums) {
+    if(getVectorKernel()!=null) {
+      VectorKernelHolder.kernel.neighborListForces(this, first, last, fx, fy, sums);
+      return;
+    }
+    int[] start = neighborList.start;
+    int[] neighbors = neighborList.neighbors;
+    double rc2 = cutoff*cutoff;
+    double potentialEnergy = 0, virial = 0;
+    for(int i = first;i<last;i++) {
+      double xi = x[i], yi = y[i];
+      double fxi = 0, fyi = 0;
+      for(int k = start[i];k<start[i+1];k++) {
+        int j = neighbors[k];
+        double dx = pbcSeparation(xi-x[j], Lx);
+        double dy = pbcSeparation(yi-y[j], Ly);
+        double r2 = dx*dx+dy*dy;
+        if(r2<rc2) {
+          double oneOverR2 = 1.0/r2;
+          double oneOverR6 = oneOverR2*oneOverR2*oneOverR2;
+          double fOverR = 48.0*oneOverR6*(oneOverR6-0.5)*oneOverR2;
+          double fxij = fOverR*dx;
+          double fyij = fOverR*dy;
+          fxi += fxij;
+          fyi += fyij;
+          fx[j] -= fxij;
+          fy[j] -= fyij;
+          potentialEnergy += 4.0*(oneOverR6*oneOverR6-oneOverR6);
+          virial += dx*fxij+dy*fyij;
+        }
+      }
+      fx[i] += fxi;
+      fy[i] += fyi;
+    }
+    sums[0] += potentialEnergy;
+    sums[1] += virial;
+  }
+
+  /**
+   * Adds the forces of all pairs (i, j>i) with i = first, first+stride, first+2*stride, ...
+   *
+   * Striding through i balances the triangular pair loop between threads.
+   *
+   * @param fx the x-component of the force on each particle
+   * @param fy the y-component of the force on each particle
+   * @param sums the potential energy and the virial are added to sums[0] and sums[1]
+   */
+  void allPairsForces(int first, int stride, double[] fx, double[] fy, double[] sums) {
+    if(getVectorKernel()!=null) {
+      VectorKernelHolder.kernel.allPairsForces(this, first, stride, fx, fy, sums);
+      return;
+    }
+    double potentialEnergy = 0, virial = 0;
+    for(int i = first;i<N-1;i += stride) {
+      double xi = x[i], yi = y[i];
+      double fxi = 0, fyi = 0;
+      for(int j = i+1;j<N;j++) {
+        double dx = pbcSeparation(xi-x[j], Lx);
+        double dy = pbcSeparation(yi-y[j], Ly);
+        double r2 = dx*dx+dy*dy;
+        double oneOverR2 = 1.0/r2;
+        double oneOverR6 = oneOverR2*oneOverR2*oneOverR2;
+        double fOverR = 48.0*oneOverR6*(oneOverR6-0.5)*oneOverR2;
+        double fxij = fOverR*dx;
+        double fyij = fOverR*dy;
+        fxi += fxij;
+        fyi += fyij;
+        fx[j] -= fxij;
+        fy[j] -= fyij;
+        potentialEnergy += 4.0*(oneOverR6*oneOverR6-oneOverR6);
+        virial += dx*fxij+dy*fyij;
+      }
+      fx[i] += fxi;
+      fy[i] += fyi;
+    }
+    sums[0] += potentialEnergy;
+    sums[1] += virial;
+  }
+
+  /**
+   * Gets the Vector API kernel if it is enabled and available.
+   *
+   * @return the kernel or null if the scalar loops should be used
+   */
+  public LJForceKernel getVectorKernel() {
+    return useVectorKernel ? VectorKernelHolder.kernel : null;
+  }
+
+  // loads the Vector API kernel the first time it is requested
+  static class VectorKernelHolder {
+    static final LJForceKernel kernel = LJForceKernel.createVectorKernel();
+  }
+
+  /**
+   * Gets the potential energy of pairs beyond the cutoff assuming g(r) = 1.
+   *
+   * @return double
+   */
+  public double getPotentialEnergyTailCorrection() {
+    if(cutoff<=0) {
+      return 0;
+    }
+    double density = N/(Lx*Ly);
+    double rc4 = Math.pow(cutoff, -4);
+    return 4.0*Math.PI*density*N*(rc4*rc4/(10.0*cutoff*cutoff)-rc4/4.0); // N*pi*rho*integral of u(r) r dr
+  }
+
+  /**
+   * Gets the virial of pairs beyond the cutoff assuming g(r) = 1.
+   *
+   * @return double
+   */
+  public double getVirialTailCorrection() {
+    if(cutoff<=0) {
+      return 0;
+    }
+    double density = N/(Lx*Ly);
+    double rc4 = Math.pow(cutoff, -4);
+    return Math.PI*density*N*(4.8*rc4*rc4/(cutoff*cutoff)-6.0*rc4); // N*pi*rho*integral of r f(r) r dr
+  }
+
   // end break
   // start break
   // pbcSeparation
@@ -251,57 +464,112 @@ public class LJParticles implements Drawable, ODE {
 
   // end break
   // start break
-  // odeMethods
-  public void getRate(double[] state, double[] rate) {
-    // getRate is called twice for each call to step.
-    // accelerations computed for every other call to getRate because
-    // new velocity is computed from previous and current acceleration.
-    // Previous acceleration is saved in step method of Verlet.
-    if(odeSolver.getRateCounter()==1) {
-      computeAcceleration();
+  // velocityVerlet
+  public void velocityVerletStep() {
+    double dtHalf = 0.5*dt;
+    double dt2Half = 0.5*dt*dt;
+    for(int i = 0;i<N;i++) {
+      x[i] += vx[i]*dt+ax[i]*dt2Half;
+      y[i] += vy[i]*dt+ay[i]*dt2Half;
+      vx[i] += ax[i]*dtHalf; // half step using previous acceleration
+      vy[i] += ay[i]*dtHalf;
     }
+    computeAcceleration();
     for(int i = 0;i<N;i++) {
-      rate[4*i] = state[4*i+1];   // rates for positions are velocities
-      rate[4*i+2] = state[4*i+3]; // vy
-      rate[4*i+1] = ax[i];        // rate for velocity is acceleration
-      rate[4*i+3] = ay[i];
+      vx[i] += ax[i]*dtHalf; // half step using new acceleration
+      vy[i] += ay[i]*dtHalf;
     }
-    rate[4*N] = 1; // dt/dt = 1
   }
 
-  public double[] getState() {
-    return state;
-  }
-
-  public void step(HistogramFrame xVelocityHistogram) {
-    odeSolver.step();
+  public void step() {
+    velocityVerletStep();
     double totalKineticEnergy = 0;
     for(int i = 0;i<N;i++) {
-      totalKineticEnergy += (state[4*i+1]*state[4*i+1]+state[4*i+3]*state[4*i+3]);
-      xVelocityHistogram.append(state[4*i+1]);
-      state[4*i] = pbcPosition(state[4*i], Lx);
-      state[4*i+2] = pbcPosition(state[4*i+2], Ly);
+      totalKineticEnergy += (vx[i]*vx[i]+vy[i]*vy[i]);
+      xVelocityHistogram.append(vx[i]);
+      x[i] = pbcPosition(x[i], Lx);
+      y[i] = pbcPosition(y[i], Ly);
     }
     totalKineticEnergy *= 0.5;
     steps++;
     totalKineticEnergyAccumulator += totalKineticEnergy;
     totalKineticEnergySquaredAccumulator += totalKineticEnergy*totalKineticEnergy;
     t += dt;
+    if((radialDistribution.stride>0)&&(steps%radialDistribution.stride==0)) {
+      radialDistribution.sample(this);
+    }
+    if((structureFactor.stride>0)&&(steps%structureFactor.stride==0)) {
+      structureFactor.sample(this);
+    }
+  }
+
+  /**
+   * Steps the system and copies the velocity histogram to the given frame.
+   *
+   * Use step() and fill the frame only when the data is displayed for better performance.
+   *
+   * @param xVelocityHistogram HistogramFrame
+   */
+  public void step(HistogramFrame xVelocityHistogram) {
+    step();
+    this.xVelocityHistogram.fill(xVelocityHistogram);
+  }
+
+  /**
+   * Gets the state packed as x, vx, y, vy for each particle followed by the time.
+   *
+   * @return double[]
+   */
+  public double[] getState() {
+    double[] state = new double[1+4*N];
+    for(int i = 0;i<N;i++) {
+      state[4*i] = x[i];
+      state[4*i+1] = vx[i];
+      state[4*i+2] = y[i];
+      state[4*i+3] = vy[i];
+    }
+    state[4*N] = t;
+    return state;
+  }
+
+  /**
+   * Sets the positions, velocities, and time from a packed state array.
+   *
+   * The number of particles is determined by the length of the array.
+   * The accelerations must be recomputed after the state is set.
+   *
+   * @param state double[]
+   */
+  public void setState(double[] state) {
+    N = (state.length-1)/4;
+    x = new double[N];
+    y = new double[N];
+    vx = new double[N];
+    vy = new double[N];
+    ax = new double[N];
+    ay = new double[N];
+    for(int i = 0;i<N;i++) {
+      x[i] = state[4*i];
+      vx[i] = state[4*i+1];
+      y[i] = state[4*i+2];
+      vy[i] = state[4*i+3];
+    }
+    t = state[4*N];
   }
 
   // end break
   // start break
   // draw
   public void draw(DrawingPanel panel, Graphics g) {
-    if(state==null) {
+    if(x==null) {
       return;
     }
     int pxRadius = Math.abs(panel.xToPix(radius)-panel.xToPix(0));
     int pyRadius = Math.abs(panel.yToPix(radius)-panel.yToPix(0));
     g.setColor(Color.red);
     for(int i = 0;i<N;i++) {
-      int xpix = panel.xToPix(state[4*i])-pxRadius;
-      int ypix = panel.yToPix(state[4*i+2])-pyRadius;
+      int xpix = panel.xToPix(x[i])-pxRadius;
+      int ypix = panel.yToPix(y[i])-pyRadius;
       g.fillOval(xpix, ypix, 2*pxRadius, 2*pyRadius);
     } // draw central cell boundary
     g.setColor(Color.black);
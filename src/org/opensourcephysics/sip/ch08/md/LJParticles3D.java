@@ -0,0 +1,412 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+import java.util.Random;
+import org.opensourcephysics.controls.*;
+
+/**
+ * LJParticles3D evolves a three-dimensional system of particles interacting via the
+ * Lennard-Jones potential using the velocity Verlet algorithm and periodic boundary conditions.
+ *
+ * Forces are computed with a linked-cell list. Each step the particles are sorted into cells
+ * with a counting sort and pairs are found by visiting each cell, and half of its 26 neighboring
+ * cells, once. Interactions beyond the cutoff are neglected and the energy and virial
+ * accumulators are corrected assuming g(r) = 1 beyond the cutoff.
+ *
+ * The accumulators and the methods that compute averages match those of LJParticles.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class LJParticles3D {
+  // offsets of the 13 neighboring cells visited from each cell so that each pair of cells is visited once
+  static final int[][] HALF_SHELL = {
+    {1, 0, 0}, {1, 1, 0}, {0, 1, 0}, {-1, 1, 0}, {1, 0, 1}, {1, 1, 1}, {0, 1, 1}, {-1, 1, 1}, {-1, 0, 1},
+    {-1, -1, 1}, {0, -1, 1}, {1, -1, 1}, {0, 0, 1}
+  };
+  public double x[], y[], z[], vx[], vy[], vz[], ax[], ay[], az[];
+  public int N, nx, ny, nz; // number of particles, number of fcc unit cells in each direction
+  public double Lx, Ly, Lz;
+  public double rho;
+  public double initialKineticEnergy;
+  public int steps = 0;
+  public double dt = 0.005;
+  public double t;
+  public double cutoff = 2.5;
+  public double totalPotentialEnergyAccumulator;
+  public double totalKineticEnergyAccumulator, totalKineticEnergySquaredAccumulator;
+  public double virialAccumulator;
+  public Random random = new Random(); // set the seed for reproducible initial conditions
+  int cellsX, cellsY, cellsZ;
+  int[] cellStart;  // particles in cell c are cellParticles[cellStart[c]] ... cellParticles[cellStart[c+1]-1]
+  int[] cellParticles;
+  int[] cellOfParticle;
+
+  public void initialize() {
+    N = 4*nx*ny*nz;
+    t = 0;
+    rho = N/(Lx*Ly*Lz);
+    allocate();
+    resetAverages();
+    setFCCLattice();
+    setVelocities();
+    computeAcceleration();
+  }
+
+  void allocate() {
+    x = new double[N];
+    y = new double[N];
+    z = new double[N];
+    vx = new double[N];
+    vy = new double[N];
+    vz = new double[N];
+    ax = new double[N];
+    ay = new double[N];
+    az = new double[N];
+    cellParticles = new int[N];
+    cellOfParticle = new int[N];
+  }
+
+  /**
+   * Places four particles in each of the nx*ny*nz unit cells of a face centered cubic lattice.
+   */
+  public void setFCCLattice() {
+    double[][] basis = {{0.25, 0.25, 0.25}, {0.75, 0.75, 0.25}, {0.75, 0.25, 0.75}, {0.25, 0.75, 0.75}};
+    double dx = Lx/nx, dy = Ly/ny, dz = Lz/nz; // unit cell dimensions
+    int i = 0;
+    for(int ix = 0;ix<nx;ix++) {
+      for(int iy = 0;iy<ny;iy++) {
+        for(int iz = 0;iz<nz;iz++) {
+          for(int b = 0;b<4;b++) {
+            x[i] = dx*(ix+basis[b][0]);
+            y[i] = dy*(iy+basis[b][1]);
+            z[i] = dz*(iz+basis[b][2]);
+            i++;
+          }
+        }
+      }
+    }
+  }
+
+  public void setVelocities() {
+    double vxSum = 0, vySum = 0, vzSum = 0;
+    for(int i = 0;i<N;++i) {
+      vx[i] = random.nextDouble()-0.5;
+      vy[i] = random.nextDouble()-0.5;
+      vz[i] = random.nextDouble()-0.5;
+      vxSum += vx[i];
+      vySum += vy[i];
+      vzSum += vz[i];
+    }
+    double v2sum = 0;
+    for(int i = 0;i<N;++i) { // zero center of mass momentum
+      vx[i] -= vxSum/N;
+      vy[i] -= vySum/N;
+      vz[i] -= vzSum/N;
+      v2sum += vx[i]*vx[i]+vy[i]*vy[i]+vz[i]*vz[i];
+    }
+    double rescale = Math.sqrt(initialKineticEnergy/(0.5*v2sum/N));
+    for(int i = 0;i<N;++i) {
+      vx[i] *= rescale;
+      vy[i] *= rescale;
+      vz[i] *= rescale;
+    }
+  }
+
+  public double getMeanTemperature() {
+    return 2.0*totalKineticEnergyAccumulator/(3.0*N*steps);
+  }
+
+  public double getMeanEnergy() {
+    return totalKineticEnergyAccumulator/steps+totalPotentialEnergyAccumulator/steps;
+  }
+
+  public double getMeanPressure() {
+    double meanVirial = virialAccumulator/steps;
+    return 1.0+meanVirial/(3.0*N*getMeanTemperature()); // quantity PV/NkT
+  }
+
+  /**
+   * Gets the heat capacity from the fluctuations of the kinetic energy.
+   *
+   * @return double
+   */
+  public double getHeatCapacity() {
+    double meanTemperature = getMeanTemperature();
+    double meanKineticEnergySquared = totalKineticEnergySquaredAccumulator/steps;
+    double meanKineticEnergy = totalKineticEnergyAccumulator/steps;
+    double sigma2 = meanKineticEnergySquared-meanKineticEnergy*meanKineticEnergy;
+    double denom = 1.0-2.0*sigma2/(3.0*N*meanTemperature*meanTemperature);
+    return 1.5*N/denom;
+  }
+
+  public void resetAverages() {
+    steps = 0;
+    virialAccumulator = 0;
+    totalPotentialEnergyAccumulator = 0;
+    totalKineticEnergyAccumulator = 0;
+    totalKineticEnergySquaredAccumulator = 0;
+  }
+
+  public void computeAcceleration() {
+    for(int i = 0;i<N;i++) {
+      ax[i] = 0;
+      ay[i] = 0;
+      az[i] = 0;
+    }
+    double[] sums = new double[2];
+    if(!fillCells()) { // fewer than three cells in some direction
+      for(int i = 0;i<N-1;i++) {
+        for(int j = i+1;j<N;j++) {
+          pairForce(i, j, sums);
+        }
+      }
+    } else {
+      for(int cz = 0;cz<cellsZ;cz++) {
+        for(int cy = 0;cy<cellsY;cy++) {
+          for(int cx = 0;cx<cellsX;cx++) {
+            int c = cx+cellsX*(cy+cellsY*cz);
+            for(int a = cellStart[c];a<cellStart[c+1];a++) { // pairs within the cell
+              for(int b = a+1;b<cellStart[c+1];b++) {
+                pairForce(cellParticles[a], cellParticles[b], sums);
+              }
+            }
+            for(int k = 0;k<HALF_SHELL.length;k++) { // pairs with neighboring cells
+              int nc = (cx+HALF_SHELL[k][0]+cellsX)%cellsX
+                       +cellsX*((cy+HALF_SHELL[k][1]+cellsY)%cellsY+cellsY*((cz+HALF_SHELL[k][2]+cellsZ)%cellsZ));
+              for(int a = cellStart[c];a<cellStart[c+1];a++) {
+                int i = cellParticles[a];
+                for(int b = cellStart[nc];b<cellStart[nc+1];b++) {
+                  pairForce(i, cellParticles[b], sums);
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    totalPotentialEnergyAccumulator += sums[0]+getPotentialEnergyTailCorrection();
+    virialAccumulator += sums[1]+getVirialTailCorrection();
+  }
+
+  // adds the force between particles i and j if they are closer than the cutoff
+  private void pairForce(int i, int j, double[] sums) {
+    double dx = separation(x[i]-x[j], Lx);
+    double dy = separation(y[i]-y[j], Ly);
+    double dz = separation(z[i]-z[j], Lz);
+    double r2 = dx*dx+dy*dy+dz*dz;
+    if(r2>=cutoff*cutoff) {
+      return;
+    }
+    double oneOverR2 = 1.0/r2;
+    double oneOverR6 = oneOverR2*oneOverR2*oneOverR2;
+    double fOverR = 48.0*oneOverR6*(oneOverR6-0.5)*oneOverR2;
+    double fx = fOverR*dx;
+    double fy = fOverR*dy;
+    double fz = fOverR*dz;
+    ax[i] += fx;
+    ay[i] += fy;
+    az[i] += fz;
+    ax[j] -= fx;
+    ay[j] -= fy;
+    az[j] -= fz;
+    sums[0] += 4.0*(oneOverR6*oneOverR6-oneOverR6);
+    sums[1] += dx*fx+dy*fy+dz*fz;
+  }
+
+  // sorts the particles into cells no smaller than the cutoff using a counting sort
+  private boolean fillCells() {
+    cellsX = (int) (Lx/cutoff);
+    cellsY = (int) (Ly/cutoff);
+    cellsZ = (int) (Lz/cutoff);
+    if((cellsX<3)||(cellsY<3)||(cellsZ<3)) {
+      return false;
+    }
+    int numberOfCells = cellsX*cellsY*cellsZ;
+    if((cellStart==null)||(cellStart.length!=numberOfCells+1)) {
+      cellStart = new int[numberOfCells+1];
+    }
+    for(int c = 0;c<=numberOfCells;c++) {
+      cellStart[c] = 0;
+    }
+    for(int i = 0;i<N;i++) { // count particles in each cell
+      int c = cell(x[i], Lx, cellsX)+cellsX*(cell(y[i], Ly, cellsY)+cellsY*cell(z[i], Lz, cellsZ));
+      cellOfParticle[i] = c;
+      cellStart[c]++;
+    }
+    for(int c = 1;c<=numberOfCells;c++) { // cellStart[c] is now the end of cell c
+      cellStart[c] += cellStart[c-1];
+    }
+    for(int i = N-1;i>=0;i--) {           // moves cellStart[c] back to the start of cell c
+      cellParticles[--cellStart[cellOfParticle[i]]] = i;
+    }
+    return true;
+  }
+
+  private static int cell(double s, double L, int cells) {
+    int c = (int) Math.floor(s*cells/L)%cells; // positions may lie slightly outside the box
+    return(c<0) ? c+cells : c;
+  }
+
+  /**
+   * Gets the potential energy of pairs beyond the cutoff assuming g(r) = 1.
+   *
+   * @return double
+   */
+  public double getPotentialEnergyTailCorrection() {
+    double density = N/(Lx*Ly*Lz);
+    double rc3 = Math.pow(cutoff, -3);
+    return 8.0*Math.PI*density*N*(rc3*rc3*rc3/3.0-rc3)/3.0;
+  }
+
+  /**
+   * Gets the virial of pairs beyond the cutoff assuming g(r) = 1.
+   *
+   * @return double
+   */
+  public double getVirialTailCorrection() {
+    double density = N/(Lx*Ly*Lz);
+    double rc3 = Math.pow(cutoff, -3);
+    return 16.0*Math.PI*density*N*(2.0*rc3*rc3*rc3-3.0*rc3)/3.0;
+  }
+
+  public void velocityVerletStep() {
+    double dtHalf = 0.5*dt;
+    double dt2Half = 0.5*dt*dt;
+    for(int i = 0;i<N;i++) {
+      x[i] += vx[i]*dt+ax[i]*dt2Half;
+      y[i] += vy[i]*dt+ay[i]*dt2Half;
+      z[i] += vz[i]*dt+az[i]*dt2Half;
+      vx[i] += ax[i]*dtHalf;
+      vy[i] += ay[i]*dtHalf;
+      vz[i] += az[i]*dtHalf;
+    }
+    computeAcceleration();
+    for(int i = 0;i<N;i++) {
+      vx[i] += ax[i]*dtHalf;
+      vy[i] += ay[i]*dtHalf;
+      vz[i] += az[i]*dtHalf;
+    }
+  }
+
+  public void step() {
+    velocityVerletStep();
+    double totalKineticEnergy = 0;
+    for(int i = 0;i<N;i++) {
+      totalKineticEnergy += vx[i]*vx[i]+vy[i]*vy[i]+vz[i]*vz[i];
+      x[i] = position(x[i], Lx);
+      y[i] = position(y[i], Ly);
+      z[i] = position(z[i], Lz);
+    }
+    totalKineticEnergy *= 0.5;
+    steps++;
+    totalKineticEnergyAccumulator += totalKineticEnergy;
+    totalKineticEnergySquaredAccumulator += totalKineticEnergy*totalKineticEnergy;
+    t += dt;
+  }
+
+  /**
+   * Gets the state packed as x, vx, y, vy, z, vz for each particle followed by the time.
+   *
+   * @return double[]
+   */
+  public double[] getState() {
+    double[] state = new double[1+6*N];
+    for(int i = 0;i<N;i++) {
+      state[6*i] = x[i];
+      state[6*i+1] = vx[i];
+      state[6*i+2] = y[i];
+      state[6*i+3] = vy[i];
+      state[6*i+4] = z[i];
+      state[6*i+5] = vz[i];
+    }
+    state[6*N] = t;
+    return state;
+  }
+
+  /**
+   * Sets the positions, velocities, and time from a packed state array.
+   *
+   * The number of particles is determined by the length of the array.
+   * The accelerations must be recomputed after the state is set.
+   *
+   * @param state double[]
+   */
+  public void setState(double[] state) {
+    N = (state.length-1)/6;
+    allocate();
+    for(int i = 0;i<N;i++) {
+      x[i] = state[6*i];
+      vx[i] = state[6*i+1];
+      y[i] = state[6*i+2];
+      vy[i] = state[6*i+3];
+      z[i] = state[6*i+4];
+      vz[i] = state[6*i+5];
+    }
+    t = state[6*N];
+  }
+
+  private static double separation(double ds, double L) {
+    if(ds>0) {
+      while(ds>0.5*L) {
+        ds -= L;
+      }
+    } else {
+      while(ds<-0.5*L) {
+        ds += L;
+      }
+    }
+    return ds;
+  }
+
+  private static double position(double s, double L) {
+    if(s>0) {
+      while(s>L) {
+        s -= L;
+      }
+    } else {
+      while(s<0) {
+        s += L;
+      }
+    }
+    return s;
+  }
+
+  /**
+   * Returns an XML.ObjectLoader to save and load LJParticles3D data.
+   *
+   * @return the object loader
+   */
+  public static XML.ObjectLoader getLoader() {
+    return new LJParticles3DLoader();
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
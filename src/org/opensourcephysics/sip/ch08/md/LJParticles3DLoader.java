@@ -0,0 +1,89 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+import org.opensourcephysics.controls.*;
+
+/**
+ * LJParticles3DLoader implements the ObjectLoader interface to load and store LJParticles3D data.
+ *
+ * @author Wolfgang Christian, Jan Tobochnik, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class LJParticles3DLoader implements XML.ObjectLoader {
+
+  /**
+   * Creates a LJParticles3D object.
+   *
+   * @param control the xml control
+   * @return a new object
+   */
+  public Object createObject(XMLControl element) {
+    return new LJParticles3D();
+  }
+
+  /**
+   * Saves data from the LJParticles3D model into the control.
+   *
+   * @param element XMLControl
+   * @param obj Object
+   */
+  public void saveObject(XMLControl control, Object obj) {
+    LJParticles3D md = (LJParticles3D) obj;
+    control.setValue("Lx", md.Lx);
+    control.setValue("Ly", md.Ly);
+    control.setValue("Lz", md.Lz);
+    control.setValue("dt", md.dt);
+    control.setValue("cutoff", md.cutoff);
+    control.setValue("state", md.getState());
+  }
+
+  /**
+   * Loads data from the control into the LJParticles3D model.
+   *
+   * @param element XMLControl
+   * @param obj Object
+   * @return Object
+   */
+  public Object loadObject(XMLControl control, Object obj) {
+    LJParticles3D md = (LJParticles3D) obj;
+    md.Lx = control.getDouble("Lx");
+    md.Ly = control.getDouble("Ly");
+    md.Lz = control.getDouble("Lz");
+    md.dt = control.getDouble("dt");
+    md.cutoff = control.getDouble("cutoff");
+    md.setState((double[]) control.getObject("state"));
+    md.rho = md.N/(md.Lx*md.Ly*md.Lz);
+    md.computeAcceleration();
+    md.resetAverages();
+    return obj;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
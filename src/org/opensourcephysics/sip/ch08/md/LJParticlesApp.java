@@ -6,6 +6,7 @@
  */
 
 package org.opensourcephysics.sip.ch08.md;
+import java.io.*;
 import org.opensourcephysics.controls.*;
 import org.opensourcephysics.frames.*;
 import org.opensourcephysics.display.GUIUtils;
@@ -21,8 +22,12 @@ public class LJParticlesApp extends AbstractSimulation {
   LJParticles md = new LJParticles();
   PlotFrame pressureData = new PlotFrame("time", "PA/NkT", "Mean pressure");
   PlotFrame temperatureData = new PlotFrame("time", "temperature", "Mean temperature");
+  PlotFrame radialDistributionData = new PlotFrame("r", "g(r)", "Radial distribution function");
   HistogramFrame xVelocityHistogram = new HistogramFrame("vx", "H(vx)", "Velocity histogram");
   DisplayFrame display = new DisplayFrame("x", "y", "Lennard-Jones system");
+  TrajectoryWriter trajectory; // saves a frame every time the display is updated
+  String trajectoryFilename = "";
+  int trajectoryRun;            // number of times the step count was reset during this trajectory
 
   /**
    * Initializes the model by reading the number of particles.
@@ -35,25 +40,79 @@ public class LJParticlesApp extends AbstractSimulation {
     md.Ly = control.getDouble("Ly");
     md.initialConfiguration = control.getString("initial configuration");
     md.dt = control.getDouble("dt");
+    md.cutoff = control.getDouble("cutoff radius (0 for none)");
+    md.skin = control.getDouble("neighbor list skin");
+    md.numberOfThreads = control.getInt("number of threads");
+    md.radialDistribution.stride = control.getInt("steps between g(r) samples (0 for none)");
     md.initialize();
     display.addDrawable(md);
     display.setPreferredMinMax(0, md.Lx, 0, md.Ly); // assumes vmax = 2*initalTemp and bin width = Vmax/N
     xVelocityHistogram.setBinWidth(2*md.initialKineticEnergy/md.N);
+    md.xVelocityHistogram.setBinWidth(2*md.initialKineticEnergy/md.N);
+    trajectoryFilename = control.getString("trajectory file (blank for none)").trim();
+    trajectoryRun = 0;
+    openTrajectory(trajectoryFilename);
+  }
+
+  /**
+   * Opens a new binary trajectory file, replacing any trajectory that is open.
+   * An existing file with the same name is overwritten because the step count starts again.
+   *
+   * @param filename the file name or an empty string for no trajectory
+   */
+  public void openTrajectory(String filename) {
+    try {
+      if(trajectory!=null) {
+        trajectory.close();
+        trajectory = null;
+      }
+      if(filename.length()>0) {
+        trajectory = new TrajectoryWriter(new File(filename), md.N, false, false);
+      }
+    } catch(IOException ex) {
+      control.println("Trajectory not saved: "+ex.getMessage());
+      trajectory = null;
+    }
   }
 
   /**
    * Does a simulation step and appends data to the views.
    */
   public void doStep() {
-    md.step(xVelocityHistogram);
+    md.step();
+    if(md.steps%getStepsPerDisplay()==0) { // copy histogram only when it will be displayed
+      md.xVelocityHistogram.fill(xVelocityHistogram);
+      writeTrajectory();
+    }
     pressureData.append(0, md.t, md.getMeanPressure());
     temperatureData.append(0, md.t, md.getMeanTemperature());
   }
 
+  void writeTrajectory() {
+    if(trajectory==null) {
+      return;
+    }
+    try {
+      trajectory.write(md);
+    } catch(IOException ex) {
+      control.println("Trajectory closed: "+ex.getMessage());
+      openTrajectory("");
+    }
+  }
+
   /**
    * Prints the LJ model's data after the simulation has stopped.
    */
   public void stop() {
+    md.xVelocityHistogram.fill(xVelocityHistogram);
+    if(trajectory!=null) {
+      control.println("Trajectory frames = "+trajectory.getNumberOfFrames());
+      try {
+        trajectory.flush();
+      } catch(IOException ex) {
+        control.println("Trajectory not flushed: "+ex.getMessage());
+      }
+    }
     control.println("Density = "+decimalFormat.format(md.rho));
     control.println("Number of time steps = "+md.steps);
     control.println("Time step dt = "+decimalFormat.format(md.dt));
@@ -61,6 +120,14 @@ public class LJParticlesApp extends AbstractSimulation {
     control.println("<E> = "+decimalFormat.format(md.getMeanEnergy()));
     control.println("Heat capacity = "+decimalFormat.format(md.getHeatCapacity()));
     control.println("<PA/NkT> = "+decimalFormat.format(md.getMeanPressure()));
+    if(md.radialDistribution.numberOfSamples>0) {
+      radialDistributionData.clearData();
+      radialDistributionData.append(0, md.radialDistribution.getR(), md.getRadialDistribution());
+      radialDistributionData.setVisible(true);
+    }
+    if(md.cutoff>0) {
+      control.println("Neighbor list builds = "+md.neighborList.numberOfBuilds);
+    }
   }
 
   /**
@@ -90,6 +157,11 @@ public class LJParticlesApp extends AbstractSimulation {
     control.setValue("initial kinetic energy per particle", 1.0);
     control.setAdjustableValue("dt", 0.01);
     control.setValue("initial configuration", "rectangular");
+    control.setValue("cutoff radius (0 for none)", 0.0);
+    control.setValue("neighbor list skin", 0.3);
+    control.setValue("number of threads", 1);
+    control.setValue("trajectory file (blank for none)", "");
+    control.setValue("steps between g(r) samples (0 for none)", 0);
     enableStepsPerDisplay(true);
     super.setStepsPerDisplay(10);  // draw configurations every 10 steps
     display.setSquareAspect(true); // so particles will appear as circular disks
@@ -102,9 +174,24 @@ public class LJParticlesApp extends AbstractSimulation {
    */
   public void resetData() {
     md.resetAverages();
+    if((trajectory!=null)&&(trajectory.getNumberOfFrames()>0)) { // steps restart at 0, so continue in a new file
+      trajectoryRun++;
+      String filename = runFilename(trajectoryFilename, trajectoryRun);
+      openTrajectory(filename);
+      control.println("Trajectory continues in "+filename);
+    }
     GUIUtils.clearDrawingFrameData(false); // clears old data from the plot frames
   }
 
+  // inserts -run before the extension of the file name, so traj.bin becomes traj-2.bin for run 2
+  static String runFilename(String filename, int run) {
+    int dot = filename.lastIndexOf('.');
+    if(dot<=Math.max(filename.lastIndexOf('/'), filename.lastIndexOf(File.separatorChar))) {
+      return filename+"-"+run;
+    }
+    return filename.substring(0, dot)+"-"+run+filename.substring(dot);
+  }
+
   /**
    * Returns an XML.ObjectLoader to save and load data for this program.
    *
@@ -36,7 +36,7 @@ public class LJParticlesLoader implements XML.ObjectLoader {
   public void saveObject(XMLControl control, Object obj) {
     LJParticlesApp model = (LJParticlesApp) obj;
     control.setValue("initial_configuration", model.md.initialConfiguration);
-    control.setValue("state", model.md.state);
+    control.setValue("state", model.md.getState());
   }
 
   /**
@@ -51,10 +51,7 @@ public class LJParticlesLoader implements XML.ObjectLoader {
     LJParticlesApp model = (LJParticlesApp) obj;
     model.initialize(); // reads values from the GUI into the LJ model
     model.md.initialConfiguration = control.getString("initial_configuration");
-    model.md.state = (double[]) control.getObject("state");
-    int N = (model.md.state.length-1)/4;
-    model.md.ax = new double[N];
-    model.md.ay = new double[N];
+    model.md.setState((double[]) control.getObject("state"));
     model.md.computeAcceleration();
     model.md.resetAverages();
     GUIUtils.clearDrawingFrameData(false); // clears old data from the plot frames
@@ -0,0 +1,234 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * LJSweep runs independent LJParticles simulations over a grid of densities and temperatures
+ * without a user interface.
+ *
+ * Each state point is a separate task on a thread pool so that a slow state point does not
+ * hold up the others. Each replica has its own random number generator with a seed derived
+ * from the sweep seed, so a sweep is reproducible. Velocities are rescaled to the target
+ * temperature during equilibration. The production run is divided into blocks and the error
+ * of each mean is the standard error of the block averages.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class LJSweep {
+  public int nx = 8, ny = 8;
+  public double dt = 0.01;
+  public double cutoff = 2.5;
+  public double skin = 0.3;
+  public int equilibrationSteps = 2000;
+  public int numberOfBlocks = 10;
+  public int stepsPerBlock = 1000;
+  public long seed = 1;
+  public int numberOfThreads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Result holds the block averages and errors for one state point.
+   */
+  public static class Result {
+    public double density, temperature; // state point
+    public double meanTemperature, meanTemperatureError;
+    public double meanPressure, meanPressureError;
+    public double meanEnergy, meanEnergyError;
+    public double heatCapacity, heatCapacityError;
+
+    public String toString() {
+      return density+"\t"+temperature+"\t"+meanTemperature+"\t"+meanTemperatureError+"\t"+meanPressure+"\t"+meanPressureError
+             +"\t"+meanEnergy+"\t"+meanEnergyError+"\t"+heatCapacity+"\t"+heatCapacityError;
+    }
+  }
+
+  /**
+   * Runs every combination of density and temperature.
+   *
+   * @param densities double[]
+   * @param temperatures double[]
+   * @return the results ordered by density and then temperature
+   * @throws InterruptedException if the sweep is interrupted
+   * @throws ExecutionException if a simulation fails
+   */
+  public List<Result> run(double[] densities, double[] temperatures) throws InterruptedException, ExecutionException {
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+    Random seeds = new Random(seed);
+    List<Future<Result>> futures = new ArrayList<Future<Result>>();
+    try {
+      for(int i = 0;i<densities.length;i++) {
+        for(int j = 0;j<temperatures.length;j++) {
+          final double density = densities[i];
+          final double temperature = temperatures[j];
+          final long replicaSeed = seeds.nextLong();
+          futures.add(executor.submit(new Callable<Result>() {
+            public Result call() {
+              return runStatePoint(density, temperature, replicaSeed);
+            }
+          }));
+        }
+      }
+      List<Result> results = new ArrayList<Result>();
+      for(Future<Result> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Simulates a single state point in a square box.
+   *
+   * @param density the number density
+   * @param temperature the target temperature
+   * @param seed the random number seed
+   * @return Result
+   */
+  public Result runStatePoint(double density, double temperature, long seed) {
+    LJParticles md = new LJParticles();
+    md.random.setSeed(seed);
+    md.nx = nx;
+    md.ny = ny;
+    md.Lx = md.Ly = Math.sqrt(nx*ny/density);
+    md.initialKineticEnergy = temperature; // kinetic energy per particle equals T in two dimensions
+    md.initialConfiguration = "rectangular";
+    md.dt = dt;
+    md.cutoff = cutoff;
+    md.skin = skin;
+    md.initialize();
+    for(int step = 0;step<equilibrationSteps;step++) {
+      md.step();
+      rescaleVelocities(md, temperature);
+    }
+    double[][] blocks = new double[4][numberOfBlocks];
+    for(int block = 0;block<numberOfBlocks;block++) {
+      md.resetAverages();
+      for(int step = 0;step<stepsPerBlock;step++) {
+        md.step();
+      }
+      blocks[0][block] = md.getMeanTemperature();
+      blocks[1][block] = md.getMeanPressure();
+      blocks[2][block] = md.getMeanEnergy();
+      blocks[3][block] = md.getHeatCapacity();
+    }
+    Result result = new Result();
+    result.density = density;
+    result.temperature = temperature;
+    result.meanTemperature = mean(blocks[0]);
+    result.meanTemperatureError = standardError(blocks[0]);
+    result.meanPressure = mean(blocks[1]);
+    result.meanPressureError = standardError(blocks[1]);
+    result.meanEnergy = mean(blocks[2]);
+    result.meanEnergyError = standardError(blocks[2]);
+    result.heatCapacity = mean(blocks[3]);
+    result.heatCapacityError = standardError(blocks[3]);
+    return result;
+  }
+
+  /**
+   * Formats results as a tab separated table with a header line.
+   *
+   * @param results List
+   * @return String
+   */
+  public static String toTable(List<Result> results) {
+    StringBuffer table = new StringBuffer("rho\tT\t<T>\terror\tPA/NkT\terror\t<E>\terror\tC\terror\n");
+    for(Result result : results) {
+      table.append(result).append('\n');
+    }
+    return table.toString();
+  }
+
+  static void rescaleVelocities(LJParticles md, double temperature) {
+    double v2Sum = 0;
+    for(int i = 0;i<md.N;i++) {
+      v2Sum += md.vx[i]*md.vx[i]+md.vy[i]*md.vy[i];
+    }
+    double rescale = Math.sqrt(temperature/(0.5*v2Sum/md.N));
+    for(int i = 0;i<md.N;i++) {
+      md.vx[i] *= rescale;
+      md.vy[i] *= rescale;
+    }
+  }
+
+  static double mean(double[] values) {
+    double sum = 0;
+    for(int i = 0;i<values.length;i++) {
+      sum += values[i];
+    }
+    return sum/values.length;
+  }
+
+  static double standardError(double[] values) {
+    int n = values.length;
+    if(n<2) {
+      return 0;
+    }
+    double mean = mean(values);
+    double sum = 0;
+    for(int i = 0;i<n;i++) {
+      sum += (values[i]-mean)*(values[i]-mean);
+    }
+    return Math.sqrt(sum/(n*(n-1)));
+  }
+
+  /**
+   * Runs a sweep from the command line and prints the results table.
+   *
+   * Usage: LJSweep densities temperatures, where each list is comma separated.
+   *
+   * @param args command line parameters
+   */
+  public static void main(String[] args) throws Exception {
+    double[] densities = {0.1, 0.3, 0.5, 0.7};
+    double[] temperatures = {0.5, 1.0, 2.0};
+    if(args.length==2) {
+      densities = parse(args[0]);
+      temperatures = parse(args[1]);
+    }
+    LJSweep sweep = new LJSweep();
+    System.out.print(toTable(sweep.run(densities, temperatures)));
+  }
+
+  static double[] parse(String list) {
+    String[] items = list.split(",");
+    double[] values = new double[items.length];
+    for(int i = 0;i<items.length;i++) {
+      values[i] = Double.parseDouble(items[i].trim());
+    }
+    return values;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
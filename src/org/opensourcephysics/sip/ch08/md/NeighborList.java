@@ -0,0 +1,185 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+import org.opensourcephysics.numerics.*;
+
+/**
+ * NeighborList stores a Verlet neighbor list for particles in a periodic box.
+ *
+ * The list contains every pair closer than cutoff+skin and is built in O(N) time
+ * by sorting the particles into a linked-cell grid. The list is rebuilt automatically
+ * when some particle has moved more than skin/2 since the last build.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class NeighborList {
+  // neighbors of particle i are neighbors[start[i]] ... neighbors[start[i+1]-1]
+  // each pair is stored once with the higher index listed under the lower index
+  public int[] start = new int[1];
+  public int[] neighbors = new int[0];
+  public int numberOfBuilds = 0;
+  int N;
+  double Lx, Ly, listRadius, skin;
+  int cellsX, cellsY;   // number of cells in each direction
+  int[] head, next;     // head[c] is first particle in cell c, next[i] is next particle in same cell
+  double[] xAtBuild, yAtBuild;
+
+  /**
+   * Rebuilds the list if the system has changed or if a particle has moved too far.
+   *
+   * @return true if the list was rebuilt
+   */
+  public boolean update(double[] x, double[] y, int N, double Lx, double Ly, double cutoff, double skin) {
+    if((N!=this.N)||(Lx!=this.Lx)||(Ly!=this.Ly)||(cutoff+skin!=listRadius)||(skin!=this.skin)
+       ||(4*maximumDisplacementSquared(x, y)>skin*skin)) {
+      build(x, y, N, Lx, Ly, cutoff, skin);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Builds the neighbor list using a linked-cell grid.
+   */
+  public void build(double[] x, double[] y, int N, double Lx, double Ly, double cutoff, double skin) {
+    this.N = N;
+    this.Lx = Lx;
+    this.Ly = Ly;
+    this.skin = skin;
+    listRadius = cutoff+skin;
+    if((xAtBuild==null)||(xAtBuild.length!=N)) {
+      xAtBuild = new double[N];
+      yAtBuild = new double[N];
+      next = new int[N];
+      start = new int[N+1];
+    }
+    for(int i = 0;i<N;i++) {
+      xAtBuild[i] = x[i];
+      yAtBuild[i] = y[i];
+    }
+    double r2Max = listRadius*listRadius;
+    int count = 0;
+    cellsX = (int) (Lx/listRadius);
+    cellsY = (int) (Ly/listRadius);
+    if((cellsX<3)||(cellsY<3)) { // box too small for cells to help
+      for(int i = 0;i<N;i++) {
+        start[i] = count;
+        for(int j = i+1;j<N;j++) {
+          if(separationSquared(i, j)<r2Max) {
+            count = add(count, j);
+          }
+        }
+      }
+    } else {
+      fillCells();
+      for(int i = 0;i<N;i++) {
+        start[i] = count;
+        int cx = cellX(xAtBuild[i]);
+        int cy = cellY(yAtBuild[i]);
+        for(int dcx = -1;dcx<=1;dcx++) {
+          for(int dcy = -1;dcy<=1;dcy++) {
+            int c = (cx+dcx+cellsX)%cellsX+cellsX*((cy+dcy+cellsY)%cellsY);
+            for(int j = head[c];j>=0;j = next[j]) {
+              if((j>i)&&(separationSquared(i, j)<r2Max)) {
+                count = add(count, j);
+              }
+            }
+          }
+        }
+      }
+    }
+    start[N] = count;
+    numberOfBuilds++;
+  }
+
+  /**
+   * Gets the number of pairs in the list.
+   *
+   * @return int
+   */
+  public int getNumberOfPairs() {
+    return start[N];
+  }
+
+  // sorts particles into cells using a linked list
+  private void fillCells() {
+    int numberOfCells = cellsX*cellsY;
+    if((head==null)||(head.length!=numberOfCells)) {
+      head = new int[numberOfCells];
+    }
+    for(int c = 0;c<numberOfCells;c++) {
+      head[c] = -1;
+    }
+    for(int i = 0;i<N;i++) {
+      int c = cellX(xAtBuild[i])+cellsX*cellY(yAtBuild[i]);
+      next[i] = head[c];
+      head[c] = i;
+    }
+  }
+
+  private int cellX(double x) {
+    int cx = (int) Math.floor(x*cellsX/Lx)%cellsX; // positions may lie slightly outside the box
+    return(cx<0) ? cx+cellsX : cx;
+  }
+
+  private int cellY(double y) {
+    int cy = (int) Math.floor(y*cellsY/Ly)%cellsY;
+    return(cy<0) ? cy+cellsY : cy;
+  }
+
+  private double separationSquared(int i, int j) {
+    double dx = PBC.separation(xAtBuild[i]-xAtBuild[j], Lx);
+    double dy = PBC.separation(yAtBuild[i]-yAtBuild[j], Ly);
+    return dx*dx+dy*dy;
+  }
+
+  private double maximumDisplacementSquared(double[] x, double[] y) {
+    double max = 0;
+    for(int i = 0;i<N;i++) {
+      double dx = PBC.separation(x[i]-xAtBuild[i], Lx);
+      double dy = PBC.separation(y[i]-yAtBuild[i], Ly);
+      max = Math.max(max, dx*dx+dy*dy);
+    }
+    return max;
+  }
+
+  private int add(int count, int j) {
+    if(count==neighbors.length) {
+      int[] temp = new int[2*count+N+16];
+      System.arraycopy(neighbors, 0, temp, 0, count);
+      neighbors = temp;
+    }
+    neighbors[count] = j;
+    return count+1;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,246 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * ParallelForces computes the Lennard-Jones forces for LJParticles using several threads.
+ *
+ * Each thread adds the forces of its share of the pairs into its own force buffers using
+ * Newton's third law. The buffers, potential energies, and virials are then summed.
+ * The force reduction is also done in parallel with each thread summing a block of particles.
+ *
+ * With a neighbor list each thread only writes to the particles of its block and their neighbors.
+ * These particles are listed when the neighbor list is rebuilt, and only their buffer entries are
+ * zeroed and summed, so the work per force evaluation does not grow with the number of threads.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class ParallelForces {
+  public final int numberOfThreads;
+  LJParticles md;
+  ForkJoinPool pool;
+  double[][] fx, fy;  // force buffer for each thread
+  double[][] sums;    // potential energy and virial for each thread
+  int[] first;        // thread k computes pairs listed under particles first[k] ... first[k+1]-1
+  int[][] touched;    // sorted particles whose forces thread k changes when a neighbor list is used
+  int[][] segment;    // touched[m][segment[m][k]] ... is the part of touched[m] in reduction block k
+  int numberOfBuilds = -1; // neighbor list build for which touched was found
+  List<Callable<Object>> pairTasks = new ArrayList<Callable<Object>>();
+  List<Callable<Object>> reduceTasks = new ArrayList<Callable<Object>>();
+
+  public ParallelForces(LJParticles md, int numberOfThreads) {
+    this.md = md;
+    this.numberOfThreads = numberOfThreads;
+    pool = new ForkJoinPool(numberOfThreads);
+    fx = new double[numberOfThreads][];
+    fy = new double[numberOfThreads][];
+    sums = new double[numberOfThreads][2];
+    first = new int[numberOfThreads+1];
+    touched = new int[numberOfThreads][];
+    segment = new int[numberOfThreads][numberOfThreads+1];
+    for(int k = 0;k<numberOfThreads;k++) {
+      final int thread = k;
+      pairTasks.add(new Callable<Object>() {
+        public Object call() {
+          computePairs(thread);
+          return null;
+        }
+      });
+      reduceTasks.add(new Callable<Object>() {
+        public Object call() {
+          reduce(thread);
+          return null;
+        }
+      });
+    }
+  }
+
+  /**
+   * Computes the accelerations and adds the potential energy and virial to the LJParticles accumulators.
+   */
+  public void computeAcceleration() {
+    int N = md.N;
+    for(int k = 0;k<numberOfThreads;k++) {
+      if((fx[k]==null)||(fx[k].length!=N)) {
+        fx[k] = new double[N];
+        fy[k] = new double[N];
+        numberOfBuilds = -1;
+      }
+    }
+    if(md.cutoff>0) {
+      md.neighborList.update(md.x, md.y, N, md.Lx, md.Ly, md.cutoff, md.skin);
+      if(md.neighborList.numberOfBuilds!=numberOfBuilds) {
+        balancePairs();
+        findTouchedParticles();
+        numberOfBuilds = md.neighborList.numberOfBuilds;
+      }
+    }
+    invoke(pairTasks);
+    invoke(reduceTasks);
+    double potentialEnergy = 0, virial = 0;
+    for(int k = 0;k<numberOfThreads;k++) {
+      potentialEnergy += sums[k][0];
+      virial += sums[k][1];
+    }
+    md.totalPotentialEnergyAccumulator += potentialEnergy+md.getPotentialEnergyTailCorrection();
+    md.virialAccumulator += virial+md.getVirialTailCorrection();
+  }
+
+  /**
+   * Stops the worker threads.
+   */
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  // splits the neighbor list into blocks with roughly the same number of pairs
+  private void balancePairs() {
+    int[] start = md.neighborList.start;
+    int N = md.N;
+    int i = 0;
+    first[0] = 0;
+    for(int k = 1;k<numberOfThreads;k++) {
+      long target = ((long) start[N])*k/numberOfThreads;
+      while((i<N)&&(start[i]<target)) {
+        i++;
+      }
+      first[k] = i;
+    }
+    first[numberOfThreads] = N;
+  }
+
+  // lists the particles whose forces each thread changes and splits the lists into reduction blocks
+  private void findTouchedParticles() {
+    int[] start = md.neighborList.start;
+    int[] neighbors = md.neighborList.neighbors;
+    int N = md.N;
+    int[] mark = new int[N];
+    java.util.Arrays.fill(mark, -1);
+    for(int k = 0;k<numberOfThreads;k++) {
+      int[] list = new int[Math.min(N, (first[k+1]-first[k])+(start[first[k+1]]-start[first[k]]))];
+      int n = 0;
+      for(int i = first[k];i<first[k+1];i++) {
+        if(mark[i]!=k) {
+          mark[i] = k;
+          list[n++] = i;
+        }
+        for(int p = start[i];p<start[i+1];p++) {
+          int j = neighbors[p];
+          if(mark[j]!=k) {
+            mark[j] = k;
+            list[n++] = j;
+          }
+        }
+      }
+      touched[k] = java.util.Arrays.copyOf(list, n);
+      java.util.Arrays.sort(touched[k]);
+      for(int block = 0;block<=numberOfThreads;block++) {
+        int index = java.util.Arrays.binarySearch(touched[k], reductionStart(block));
+        segment[k][block] = (index>=0) ? index : -index-1;
+      }
+    }
+  }
+
+  // first particle of reduction block k
+  private int reductionStart(int k) {
+    return(int) (((long) md.N)*k/numberOfThreads);
+  }
+
+  private void computePairs(int k) {
+    double[] fxk = fx[k], fyk = fy[k];
+    if(md.cutoff>0) {
+      for(int i : touched[k]) {
+        fxk[i] = 0;
+        fyk[i] = 0;
+      }
+    } else {
+      java.util.Arrays.fill(fxk, 0, md.N, 0);
+      java.util.Arrays.fill(fyk, 0, md.N, 0);
+    }
+    sums[k][0] = 0;
+    sums[k][1] = 0;
+    if(md.cutoff>0) {
+      md.neighborListForces(first[k], first[k+1], fxk, fyk, sums[k]);
+    } else {
+      md.allPairsForces(k, numberOfThreads, fxk, fyk, sums[k]);
+    }
+  }
+
+  private void reduce(int k) {
+    double[] ax = md.ax, ay = md.ay;
+    if(md.cutoff>0) {
+      for(int m = 0;m<numberOfThreads;m++) {
+        double[] fxm = fx[m], fym = fy[m];
+        int[] list = touched[m];
+        for(int p = segment[m][k];p<segment[m][k+1];p++) {
+          int i = list[p];
+          ax[i] += fxm[i];
+          ay[i] += fym[i];
+        }
+      }
+      return;
+    }
+    int iStart = reductionStart(k);
+    int iStop = reductionStart(k+1);
+    for(int m = 0;m<numberOfThreads;m++) {
+      double[] fxm = fx[m], fym = fy[m];
+      for(int i = iStart;i<iStop;i++) {
+        ax[i] += fxm[i];
+        ay[i] += fym[i];
+      }
+    }
+  }
+
+  // runs the tasks and waits for all of them, even if this thread is interrupted,
+  // so that the forces are never computed from partially filled buffers
+  private void invoke(List<Callable<Object>> tasks) {
+    boolean interrupted = false;
+    for(Future<Object> future : pool.invokeAll(tasks)) {
+      while(true) {
+        try {
+          future.get();
+          break;
+        } catch(InterruptedException ex) {
+          interrupted = true; // keep waiting and restore the interrupt status afterwards
+        } catch(ExecutionException ex) {
+          throw new RuntimeException(ex.getCause());
+        }
+      }
+    }
+    if(interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
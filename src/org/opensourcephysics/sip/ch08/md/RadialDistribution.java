@@ -0,0 +1,134 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+import org.opensourcephysics.numerics.*;
+
+/**
+ * RadialDistribution accumulates the pair distribution function g(r) of LJParticles.
+ *
+ * Pairs are found from a Verlet neighbor list so that each sample takes O(N) time.
+ * The particles' own list is used when its cutoff is at least rMax; otherwise a separate
+ * list with radius rMax is kept. Separations beyond half the box size are not sampled because
+ * periodic images would be counted twice, so rMax is reduced to half the smaller side of the
+ * box when the histogram is created.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class RadialDistribution {
+  public int stride = 0;          // steps between samples; 0 for no sampling
+  public double rMax = 2.5;       // reduced to half the smaller box side if larger
+  public double binWidth = 0.05;
+  public long[] counts = new long[0];
+  public int numberOfSamples = 0;
+  double normalization = 0;       // sum over samples of N*N/(2*area)
+  double radius = 0;              // rMax after the reduction, the range of the histogram
+  NeighborList neighborList = new NeighborList();
+
+  public void clear() {
+    counts = new long[(int) Math.ceil(radius/binWidth)];
+    numberOfSamples = 0;
+    normalization = 0;
+  }
+
+  /**
+   * Adds the separations of all pairs closer than rMax, or half the smaller side of the box,
+   * to the histogram.
+   *
+   * @param md LJParticles
+   */
+  public void sample(LJParticles md) {
+    double rMax = Math.min(this.rMax, 0.5*Math.min(md.Lx, md.Ly));
+    int numberOfBins = (int) Math.ceil(rMax/binWidth);
+    if((radius!=rMax)||(counts.length!=numberOfBins)) {
+      radius = rMax;
+      clear();
+    }
+    NeighborList list = md.neighborList;
+    if((md.cutoff<rMax)||(list.N!=md.N)) { // particles' list does not include all pairs within rMax
+      list = neighborList;
+      list.update(md.x, md.y, md.N, md.Lx, md.Ly, rMax, 0.1*rMax);
+    }
+    int[] start = list.start;
+    int[] neighbors = list.neighbors;
+    double[] x = md.x, y = md.y;
+    double r2Max = rMax*rMax;
+    for(int i = 0;i<md.N;i++) {
+      for(int k = start[i];k<start[i+1];k++) {
+        int j = neighbors[k];
+        double dx = PBC.separation(x[i]-x[j], md.Lx);
+        double dy = PBC.separation(y[i]-y[j], md.Ly);
+        double r2 = dx*dx+dy*dy;
+        if(r2<r2Max) {
+          int bin = (int) (Math.sqrt(r2)/binWidth);
+          if(bin<numberOfBins) {
+            counts[bin]++;
+          }
+        }
+      }
+    }
+    normalization += 0.5*md.N*md.N/(md.Lx*md.Ly);
+    numberOfSamples++;
+  }
+
+  /**
+   * Gets the radius at the center of each bin.
+   *
+   * @return a new array
+   */
+  public double[] getR() {
+    double[] r = new double[counts.length];
+    for(int bin = 0;bin<r.length;bin++) {
+      r[bin] = (bin+0.5)*binWidth;
+    }
+    return r;
+  }
+
+  /**
+   * Gets g(r) for each bin from the samples taken so far.
+   *
+   * @return a new array
+   */
+  public double[] getG() {
+    double[] g = new double[counts.length];
+    if(numberOfSamples==0) {
+      return g;
+    }
+    for(int bin = 0;bin<g.length;bin++) {
+      double rInner = bin*binWidth;
+      double rOuter = Math.min(rInner+binWidth, radius); // the last bin ends at the range
+      double shellArea = Math.PI*(rOuter*rOuter-rInner*rInner);
+      g[bin] = counts[bin]/(normalization*shellArea);
+    }
+    return g;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,175 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+
+/**
+ * StructureFactor accumulates the static structure factor S(k) of LJParticles.
+ *
+ * S(k) = |sum_j exp(i k.r_j)|^2/N is computed for the wave vectors k = 2 pi (n/Lx, m/Ly)
+ * with |n|, |m| <= maxMode. Because S(k) = S(-k), only half of the vectors are used.
+ * The results are averaged over shells of width 2 pi/max(Lx, Ly) in |k|.
+ *
+ * Each sample takes O(N K) time for K wave vectors, so samples are usually taken less often than g(r).
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class StructureFactor {
+  public int stride = 0;  // steps between samples; 0 for no sampling
+  public int maxMode = 10;
+  public double[] sum = new double[0]; // sum[n*(2*maxMode+1)+m+maxMode] accumulates S for mode (n, m)
+  public int numberOfSamples = 0;
+  double Lx, Ly;
+  double[] rhoRe, rhoIm, exRe, exIm, eyRe, eyIm;
+
+  public void clear() {
+    int width = 2*maxMode+1;
+    sum = new double[(maxMode+1)*width];
+    rhoRe = new double[sum.length];
+    rhoIm = new double[sum.length];
+    exRe = new double[maxMode+1];
+    exIm = new double[maxMode+1];
+    eyRe = new double[width];
+    eyIm = new double[width];
+    numberOfSamples = 0;
+  }
+
+  /**
+   * Adds |rho(k)|^2/N for each wave vector to the sums.
+   *
+   * @param md LJParticles
+   */
+  public void sample(LJParticles md) {
+    int width = 2*maxMode+1;
+    if((sum.length!=(maxMode+1)*width)||(md.Lx!=Lx)||(md.Ly!=Ly)) { // wave vectors changed
+      Lx = md.Lx;
+      Ly = md.Ly;
+      clear();
+    }
+    for(int k = 0;k<rhoRe.length;k++) {
+      rhoRe[k] = 0;
+      rhoIm[k] = 0;
+    }
+    for(int i = 0;i<md.N;i++) {
+      double cx = Math.cos(2*Math.PI*md.x[i]/Lx), sx = Math.sin(2*Math.PI*md.x[i]/Lx);
+      double cy = Math.cos(2*Math.PI*md.y[i]/Ly), sy = Math.sin(2*Math.PI*md.y[i]/Ly);
+      exRe[0] = 1; // exp(i n kx x) by repeated multiplication
+      exIm[0] = 0;
+      for(int n = 1;n<=maxMode;n++) {
+        exRe[n] = exRe[n-1]*cx-exIm[n-1]*sx;
+        exIm[n] = exRe[n-1]*sx+exIm[n-1]*cx;
+      }
+      eyRe[maxMode] = 1;
+      eyIm[maxMode] = 0;
+      for(int m = 1;m<=maxMode;m++) {
+        eyRe[maxMode+m] = eyRe[maxMode+m-1]*cy-eyIm[maxMode+m-1]*sy;
+        eyIm[maxMode+m] = eyRe[maxMode+m-1]*sy+eyIm[maxMode+m-1]*cy;
+        eyRe[maxMode-m] = eyRe[maxMode+m]; // negative modes are complex conjugates
+        eyIm[maxMode-m] = -eyIm[maxMode+m];
+      }
+      for(int n = 0;n<=maxMode;n++) {
+        double re = exRe[n], im = exIm[n];
+        int offset = n*width;
+        for(int m = 0;m<width;m++) {
+          rhoRe[offset+m] += re*eyRe[m]-im*eyIm[m];
+          rhoIm[offset+m] += re*eyIm[m]+im*eyRe[m];
+        }
+      }
+    }
+    for(int k = 0;k<sum.length;k++) {
+      sum[k] += (rhoRe[k]*rhoRe[k]+rhoIm[k]*rhoIm[k])/md.N;
+    }
+    numberOfSamples++;
+  }
+
+  /**
+   * Gets the wave number at the center of each shell.
+   *
+   * @return a new array
+   */
+  public double[] getK() {
+    double dk = getShellWidth();
+    double[] k = new double[getNumberOfShells()];
+    for(int shell = 0;shell<k.length;shell++) {
+      k[shell] = (shell+0.5)*dk;
+    }
+    return k;
+  }
+
+  /**
+   * Gets S(k) averaged over the wave vectors in each shell; empty shells are 0.
+   *
+   * @return a new array
+   */
+  public double[] getS() {
+    int numberOfShells = getNumberOfShells();
+    double[] s = new double[numberOfShells];
+    int[] vectors = new int[numberOfShells];
+    if(numberOfSamples==0) {
+      return s;
+    }
+    double dk = getShellWidth();
+    int width = 2*maxMode+1;
+    for(int n = 0;n<=maxMode;n++) {
+      for(int m = -maxMode;m<=maxMode;m++) {
+        if((n==0)&&(m<=0)) { // k = 0 and the vectors -k are skipped
+          continue;
+        }
+        double kx = 2*Math.PI*n/Lx, ky = 2*Math.PI*m/Ly;
+        int shell = (int) (Math.sqrt(kx*kx+ky*ky)/dk);
+        if(shell<numberOfShells) {
+          s[shell] += sum[n*width+m+maxMode]/numberOfSamples;
+          vectors[shell]++;
+        }
+      }
+    }
+    for(int shell = 0;shell<numberOfShells;shell++) {
+      if(vectors[shell]>0) {
+        s[shell] /= vectors[shell];
+      }
+    }
+    return s;
+  }
+
+  private double getShellWidth() {
+    return 2*Math.PI/Math.max(Lx, Ly);
+  }
+
+  // shells up to the largest |k| that is sampled in every direction
+  private int getNumberOfShells() {
+    if(numberOfSamples==0) {
+      return 0;
+    }
+    double kMax = 2*Math.PI*maxMode/Math.max(Lx, Ly);
+    return(int) (kMax/getShellWidth())+1;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,178 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TrajectoryReader provides random access to the frames of a TrajectoryWriter file.
+ *
+ * The file is memory mapped in windows of whole frames so that files larger than 2 GB can be read.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class TrajectoryReader {
+  static final long WINDOW_SIZE = 1<<30; // maximum number of bytes mapped at once
+  public final int N;
+  public final int bytesPerValue;
+  public final int frameSize;
+  public final int numberOfFrames;
+  FileChannel channel;
+  MappedByteBuffer window;
+  int firstFrameInWindow, framesInWindow;
+  int framesPerWindow;
+
+  public TrajectoryReader(File file) throws IOException {
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      if(channel.size()<TrajectoryWriter.HEADER_SIZE) {
+        throw new IOException("not a trajectory file");
+      }
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, TrajectoryWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      byte[] magic = new byte[TrajectoryWriter.MAGIC.length];
+      header.get(magic);
+      if(!java.util.Arrays.equals(magic, TrajectoryWriter.MAGIC)||(header.getInt()!=TrajectoryWriter.VERSION)) {
+        throw new IOException("not a trajectory file");
+      }
+      N = header.getInt();
+      bytesPerValue = header.getInt();
+      frameSize = header.getInt();
+      numberOfFrames = (int) ((channel.size()-TrajectoryWriter.HEADER_SIZE)/frameSize);
+      framesPerWindow = (int) Math.max(1, WINDOW_SIZE/frameSize);
+    } catch(IOException ex) {
+      channel.close();
+      throw ex;
+    }
+  }
+
+  public long getStep(int frame) {
+    return frame(frame).getLong();
+  }
+
+  public double getTime(int frame) {
+    ByteBuffer b = frame(frame);
+    return b.getDouble(b.position()+8);
+  }
+
+  /**
+   * Finds the first frame whose step is not less than the given step.
+   * The search relies on TrajectoryWriter refusing frames whose steps do not increase.
+   *
+   * @param step long
+   * @return the frame or numberOfFrames if there is no such frame
+   */
+  public int findFrame(long step) {
+    int low = 0, high = numberOfFrames;
+    while(low<high) {
+      int mid = (low+high)>>>1;
+      if(getStep(mid)<step) {
+        low = mid+1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Reads the positions and velocities of a frame. Arrays that are null are skipped.
+   */
+  public void readFrame(int frame, double[] x, double[] y, double[] vx, double[] vy) {
+    ByteBuffer b = frame(frame);
+    int offset = b.position()+TrajectoryWriter.FRAME_HEADER_SIZE;
+    int block = N*bytesPerValue;
+    get(b, offset, x);
+    get(b, offset+block, y);
+    get(b, offset+2*block, vx);
+    get(b, offset+3*block, vy);
+  }
+
+  /**
+   * Copies a frame into the particles. The accelerations must be recomputed afterwards.
+   *
+   * @param frame int
+   * @param md LJParticles
+   */
+  public void readFrame(int frame, LJParticles md) {
+    if((md.x==null)||(md.N!=N)) {
+      md.setState(new double[1+4*N]);
+    }
+    ByteBuffer b = frame(frame);
+    md.steps = (int) b.getLong(b.position());
+    md.t = b.getDouble(b.position()+8);
+    md.Lx = b.getDouble(b.position()+16);
+    md.Ly = b.getDouble(b.position()+24);
+    readFrame(frame, md.x, md.y, md.vx, md.vy);
+  }
+
+  public void close() throws IOException {
+    window = null;
+    channel.close();
+  }
+
+  // returns the mapped window with its position set to the start of the frame
+  private ByteBuffer frame(int frame) {
+    if((frame<0)||(frame>=numberOfFrames)) {
+      throw new IndexOutOfBoundsException("frame "+frame+" of "+numberOfFrames);
+    }
+    if((window==null)||(frame<firstFrameInWindow)||(frame>=firstFrameInWindow+framesInWindow)) {
+      firstFrameInWindow = frame-frame%framesPerWindow;
+      framesInWindow = Math.min(framesPerWindow, numberOfFrames-firstFrameInWindow);
+      try {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, TrajectoryWriter.HEADER_SIZE+((long) firstFrameInWindow)*frameSize, ((long) framesInWindow)*frameSize);
+      } catch(IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+    window.position((frame-firstFrameInWindow)*frameSize);
+    return window;
+  }
+
+  private void get(ByteBuffer b, int offset, double[] values) {
+    if(values==null) {
+      return;
+    }
+    if(bytesPerValue==4) {
+      for(int i = 0;i<N;i++) {
+        values[i] = b.getFloat(offset+4*i);
+      }
+    } else {
+      ByteBuffer slice = b.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      slice.position(offset);
+      slice.asDoubleBuffer().get(values, 0, N);
+    }
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,213 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TrajectoryWriter appends LJParticles configurations to a binary trajectory file.
+ *
+ * The file starts with a header followed by frames of equal size so that frame k starts at
+ * HEADER_SIZE+k*frameSize. All values are little-endian.
+ *
+ * <pre>
+ * header: magic "LJTRAJ01", int version, int N, int bytes per value (4 or 8), int frame size
+ * frame:  long step, double t, double Lx, double Ly, then N values each of x, y, vx, vy
+ * </pre>
+ *
+ * Opening an existing file with the same N and precision in append mode adds frames to it.
+ * A partially written last frame is discarded.
+ *
+ * The steps of the frames must increase so that TrajectoryReader.findFrame can use a binary search.
+ * A frame whose step is not larger than the step of the last frame is refused, so a run whose
+ * step count restarts at zero must be written to a new file.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class TrajectoryWriter {
+  public static final byte[] MAGIC = {'L', 'J', 'T', 'R', 'A', 'J', '0', '1'};
+  public static final int VERSION = 1;
+  public static final int HEADER_SIZE = 32;
+  public static final int FRAME_HEADER_SIZE = 32;
+  public final int N;
+  public final int bytesPerValue;
+  public final int frameSize;
+  FileChannel channel;
+  ByteBuffer buffer;
+  int numberOfFrames;
+  long lastStep = Long.MIN_VALUE; // step of the last frame in the file
+
+  /**
+   * Opens a trajectory file for appending.
+   *
+   * @param file the trajectory file
+   * @param N the number of particles
+   * @param singlePrecision true to store positions and velocities as floats
+   * @throws IOException if the file cannot be written or holds a different system
+   */
+  public TrajectoryWriter(File file, int N, boolean singlePrecision) throws IOException {
+    this(file, N, singlePrecision, true);
+  }
+
+  /**
+   * Opens a trajectory file.
+   *
+   * @param file the trajectory file
+   * @param N the number of particles
+   * @param singlePrecision true to store positions and velocities as floats
+   * @param append true to append to an existing file, false to replace it
+   * @throws IOException if the file cannot be written or holds a different system
+   */
+  public TrajectoryWriter(File file, int N, boolean singlePrecision, boolean append) throws IOException {
+    this.N = N;
+    bytesPerValue = singlePrecision ? 4 : 8;
+    frameSize = FRAME_HEADER_SIZE+4*N*bytesPerValue;
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if(!append) {
+        channel.truncate(0);
+      }
+      long size = channel.size();
+      if(size==0) {
+        writeHeader();
+      } else {
+        checkHeader();
+        numberOfFrames = (int) ((size-HEADER_SIZE)/frameSize);
+        channel.truncate(HEADER_SIZE+((long) numberOfFrames)*frameSize);
+        if(numberOfFrames>0) {
+          ByteBuffer step = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+          channel.position(HEADER_SIZE+((long) numberOfFrames-1)*frameSize);
+          while(step.hasRemaining()&&(channel.read(step)>=0)) {}
+          lastStep = step.getLong(0);
+        }
+      }
+      channel.position(channel.size());
+    } catch(IOException ex) {
+      channel.close();
+      throw ex;
+    }
+    buffer = ByteBuffer.allocateDirect(frameSize).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Appends the current configuration as a new frame.
+   *
+   * @param md the particles
+   * @throws IOException if the system differs or its step is not after the last step in the file
+   */
+  public void write(LJParticles md) throws IOException {
+    if(md.N!=N) {
+      throw new IOException("trajectory has "+N+" particles, system has "+md.N);
+    }
+    if(md.steps<=lastStep) {
+      throw new IOException("step "+md.steps+" is not after the last step "+lastStep+" in the trajectory");
+    }
+    buffer.clear();
+    buffer.putLong(md.steps);
+    buffer.putDouble(md.t);
+    buffer.putDouble(md.Lx);
+    buffer.putDouble(md.Ly);
+    put(md.x);
+    put(md.y);
+    put(md.vx);
+    put(md.vy);
+    buffer.flip();
+    while(buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    numberOfFrames++;
+    lastStep = md.steps;
+  }
+
+  public int getNumberOfFrames() {
+    return numberOfFrames;
+  }
+
+  /**
+   * Forces the frames written so far to the storage device.
+   *
+   * @throws IOException
+   */
+  public void flush() throws IOException {
+    channel.force(false);
+  }
+
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void put(double[] values) {
+    if(bytesPerValue==4) {
+      for(int i = 0;i<N;i++) {
+        buffer.putFloat((float) values[i]);
+      }
+    } else {
+      buffer.asDoubleBuffer().put(values, 0, N);
+      buffer.position(buffer.position()+8*N);
+    }
+  }
+
+  private void writeHeader() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    header.put(MAGIC);
+    header.putInt(VERSION);
+    header.putInt(N);
+    header.putInt(bytesPerValue);
+    header.putInt(frameSize);
+    header.rewind();
+    channel.position(0);
+    while(header.hasRemaining()) {
+      channel.write(header);
+    }
+  }
+
+  private void checkHeader() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    channel.position(0);
+    while(header.hasRemaining()&&(channel.read(header)>=0)) {}
+    header.flip();
+    byte[] magic = new byte[MAGIC.length];
+    if(header.remaining()<HEADER_SIZE) {
+      throw new IOException("not a trajectory file");
+    }
+    header.get(magic);
+    if(!java.util.Arrays.equals(magic, MAGIC)||(header.getInt()!=VERSION)) {
+      throw new IOException("not a trajectory file");
+    }
+    if((header.getInt()!=N)||(header.getInt()!=bytesPerValue)) {
+      throw new IOException("trajectory file has a different number of particles or precision");
+    }
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
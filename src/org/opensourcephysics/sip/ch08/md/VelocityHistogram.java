@@ -0,0 +1,126 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch08.md;
+import org.opensourcephysics.frames.*;
+
+/**
+ * VelocityHistogram accumulates a histogram with fixed bin width in a primitive array.
+ *
+ * Values are binned as in the HistogramFrame so that the counts can be copied to a frame
+ * in a single pass when the data is displayed. The bin range grows as needed.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class VelocityHistogram {
+  public double binWidth;
+  public long[] counts = new long[0]; // counts[k] is the number of values in bin firstBin+k
+  public int firstBin = 0;
+  public long total = 0;
+
+  public VelocityHistogram(double binWidth) {
+    this.binWidth = binWidth;
+  }
+
+  /**
+   * Sets the bin width and clears the data.
+   *
+   * @param binWidth double
+   */
+  public void setBinWidth(double binWidth) {
+    this.binWidth = binWidth;
+    clear();
+  }
+
+  public void clear() {
+    counts = new long[0];
+    firstBin = 0;
+    total = 0;
+  }
+
+  public void append(double value) {
+    int bin = (int) Math.floor(value/binWidth);
+    int k = bin-firstBin;
+    if((k<0)||(k>=counts.length)) {
+      grow(bin);
+      k = bin-firstBin;
+    }
+    counts[k]++;
+    total++;
+  }
+
+  /**
+   * Gets the value at the center of the kth bin in the counts array.
+   *
+   * @param k int
+   * @return double
+   */
+  public double getBinCenter(int k) {
+    return(firstBin+k+0.5)*binWidth;
+  }
+
+  /**
+   * Replaces the data in the frame with the accumulated counts.
+   *
+   * @param frame HistogramFrame
+   */
+  public void fill(HistogramFrame frame) {
+    frame.clearData();
+    for(int k = 0;k<counts.length;k++) {
+      if(counts[k]>0) {
+        frame.append(getBinCenter(k), counts[k]);
+      }
+    }
+  }
+
+  // enlarges the counts array so that it includes the given bin
+  private void grow(int bin) {
+    if(counts.length==0) {
+      counts = new long[16];
+      firstBin = bin-8;
+      return;
+    }
+    int lastBin = firstBin+counts.length-1;
+    int newFirstBin = Math.min(firstBin, bin);
+    int newLastBin = Math.max(lastBin, bin);
+    int extra = (newLastBin-newFirstBin+1)/2; // leave room to avoid frequent copies
+    if(bin<firstBin) {
+      newFirstBin -= extra;
+    } else {
+      newLastBin += extra;
+    }
+    long[] temp = new long[newLastBin-newFirstBin+1];
+    System.arraycopy(counts, 0, temp, firstBin-newFirstBin, counts.length);
+    counts = temp;
+    firstBin = newFirstBin;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
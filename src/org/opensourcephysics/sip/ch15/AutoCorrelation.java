@@ -0,0 +1,158 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import org.opensourcephysics.numerics.FFT;
+
+/**
+ * AutoCorrelation computes normalized autocorrelation functions with the fast Fourier transform,
+ * integrated autocorrelation times and binning error estimates for Monte Carlo time series.
+ *
+ * The autocorrelation function of n points is found in O(n log n) operations from the power
+ * spectrum of the series padded with zeros to at least 2n points, so that the periodic
+ * correlation of the transform equals the ordinary correlation. Two real series are
+ * transformed together as the real and imaginary parts of one complex series.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class AutoCorrelation {
+  public static final double SOKAL_WINDOW_FACTOR = 6;
+
+  /**
+   * Computes the normalized autocorrelation functions C(tau) of two series of equal length,
+   * C(tau) = (<x(t+tau)x(t)>-<x>^2)/(<x^2>-<x>^2) with C(0) = 1.
+   *
+   * @param x the first series
+   * @param y the second series
+   * @return the functions of x and y for tau = 0 ... n-1
+   */
+  public static double[][] compute(double[] x, double[] y) {
+    int n = x.length;
+    int m = 1;
+    while(m<2*n) {
+      m *= 2;
+    }
+    double xMean = mean(x), yMean = mean(y);
+    double[] z = new double[2*m];
+    for(int t = 0;t<n;t++) {
+      z[2*t] = x[t]-xMean;
+      z[2*t+1] = y[t]-yMean;
+    }
+    FFT fft = new FFT(m);
+    fft.transform(z);
+    // the transforms of x and y are (Z(k)+Z*(m-k))/2 and (Z(k)-Z*(m-k))/2i
+    // their power spectra are real and even, so they are transformed back together
+    for(int k = 0;k<=m/2;k++) {
+      int mk = (m-k)%m;
+      double re = z[2*k], im = z[2*k+1], reM = z[2*mk], imM = z[2*mk+1];
+      double xRe = (re+reM)/2, xIm = (im-imM)/2;
+      double yRe = (im+imM)/2, yIm = (reM-re)/2;
+      double xPower = xRe*xRe+xIm*xIm;
+      double yPower = yRe*yRe+yIm*yIm;
+      z[2*k] = z[2*mk] = xPower;
+      z[2*k+1] = z[2*mk+1] = yPower;
+    }
+    fft.inverse(z);
+    double[][] c = new double[2][n];
+    double xNorm = z[0]/n, yNorm = z[1]/n;
+    for(int tau = 0;tau<n;tau++) {
+      c[0][tau] = (xNorm>0) ? z[2*tau]/(n-tau)/xNorm : 0;
+      c[1][tau] = (yNorm>0) ? z[2*tau+1]/(n-tau)/yNorm : 0;
+    }
+    return c;
+  }
+
+  /**
+   * Computes the integrated autocorrelation time tau = 1/2 + sum C(t) for t = 1 ... W using
+   * Sokal's automatic window, the smallest W with W >= SOKAL_WINDOW_FACTOR*tau(W).
+   *
+   * @param c the normalized autocorrelation function
+   * @param n the number of points in the series
+   * @return the time, its statistical error and the window W
+   */
+  public static double[] integratedTime(double[] c, int n) {
+    double tau = 0.5;
+    int window = 0;
+    for(int t = 1;t<c.length;t++) {
+      tau += c[t];
+      window = t;
+      if(t>=SOKAL_WINDOW_FACTOR*tau) {
+        break;
+      }
+    }
+    double error = tau*Math.sqrt(2.0*(2*window+1)/n);
+    return new double[] {tau, error, window};
+  }
+
+  /**
+   * Estimates the error of the mean by binning. At level k the series is divided into blocks
+   * of 2^k points and the error is the standard deviation of the block means divided by the
+   * square root of the number of blocks minus one. The error increases with k until the blocks
+   * are longer than the correlation time and then levels off.
+   *
+   * @param x the series
+   * @param minimumBlocks the smallest number of blocks to use
+   * @return the error at each level
+   */
+  public static double[] binningErrors(double[] x, int minimumBlocks) {
+    int levels = 0;
+    while((x.length>>levels)>=minimumBlocks) {
+      levels++;
+    }
+    double[] errors = new double[levels];
+    double[] blocks = x.clone();
+    int numberOfBlocks = x.length;
+    for(int level = 0;level<levels;level++) {
+      double mean = 0, meanSquared = 0;
+      for(int b = 0;b<numberOfBlocks;b++) {
+        mean += blocks[b];
+        meanSquared += blocks[b]*blocks[b];
+      }
+      mean /= numberOfBlocks;
+      meanSquared /= numberOfBlocks;
+      errors[level] = Math.sqrt(Math.max(0, meanSquared-mean*mean)/(numberOfBlocks-1));
+      numberOfBlocks /= 2;
+      for(int b = 0;b<numberOfBlocks;b++) {
+        blocks[b] = (blocks[2*b]+blocks[2*b+1])/2;
+      }
+    }
+    return errors;
+  }
+
+  static double mean(double[] x) {
+    double sum = 0;
+    for(int i = 0;i<x.length;i++) {
+      sum += x[i];
+    }
+    return sum/x.length;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,321 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import java.awt.Color;
+import java.util.*;
+import java.util.concurrent.*;
+import org.opensourcephysics.frames.*;
+
+/**
+ * CheckerboardIsing is a Metropolis simulation of the Ising model that does not depend on a display.
+ *
+ * The spins are stored in a byte array and the lattice is updated in two half sweeps.
+ * The first half sweep updates the sites with even i+j and the second updates the sites with
+ * odd i+j. Because the four neighbors of a site have the other color, the sites of one color
+ * can be updated in any order. Each half sweep is divided into strips of rows and each strip
+ * is updated by its own thread with its own random number generator. The spins are copied to
+ * a LatticeFrame only when copyToLattice is called. The threads are daemon threads so that an
+ * application that never calls shutdown can still exit.
+ *
+ * Because of the checkerboard decomposition, L must be even.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class CheckerboardIsing {
+  static final ThreadFactory DAEMON_THREADS = new ThreadFactory() {
+    public Thread newThread(Runnable task) {
+      Thread thread = Executors.defaultThreadFactory().newThread(task);
+      thread.setDaemon(true);
+      return thread;
+    }
+  };
+  public int L = 32;
+  public int N = L*L;                 // number of spins
+  public byte[] spin;                 // spin at column i and row j is spin[i+j*L]
+  public double temperature = Ising.criticalTemperature;
+  public int mcs = 0;                 // number of MC moves per spin
+  public long energy;
+  public double energyAccumulator = 0;
+  public double energySquaredAccumulator = 0;
+  public long magnetization = 0;
+  public double magnetizationAccumulator = 0;
+  public double magnetizationSquaredAccumulator = 0;
+  public long acceptedMoves = 0;
+  public double[] w = new double[9];  // array to hold Boltzmann factors
+  public long seed = 1;
+  int numberOfThreads = 1;
+  int[] threshold = new int[9];       // flip if a random 31 bit integer is less than threshold[dE]
+  int[] firstRow;                     // strip k has rows firstRow[k] ... firstRow[k+1]-1
+  long[] randomState;                 // state of the random number generator of each strip
+  long[][] changes;                   // energy change, magnetization change and accepted flips of each strip
+  ExecutorService pool;
+  List<Callable<Object>> evenTasks = new ArrayList<Callable<Object>>();
+  List<Callable<Object>> oddTasks = new ArrayList<Callable<Object>>();
+  byte[][] displayValues;
+
+  /**
+   * Initializes the lattice with all spins up.
+   *
+   * @param L the linear dimension, which must be even
+   * @param numberOfThreads the number of threads and strips
+   */
+  public void initialize(int L, int numberOfThreads) {
+    if((L<2)||(L%2!=0)) {
+      throw new IllegalArgumentException("L must be even for a checkerboard update: "+L);
+    }
+    this.L = L;
+    N = L*L;
+    spin = new byte[N];
+    Arrays.fill(spin, (byte) 1);
+    magnetization = N;
+    energy = -2*N; // minimum energy
+    displayValues = null;
+    setNumberOfThreads(numberOfThreads);
+    setTemperature(temperature);
+    resetData();
+  }
+
+  /**
+   * Sets the temperature and the Boltzmann factors.
+   *
+   * @param temperature double
+   */
+  public void setTemperature(double temperature) {
+    this.temperature = temperature;
+    w[8] = Math.exp(-8.0/temperature); // other array elements never occur for H = 0
+    w[4] = Math.exp(-4.0/temperature);
+    threshold[8] = (int) (w[8]*(1L<<31));
+    threshold[4] = (int) (w[4]*(1L<<31));
+  }
+
+  /**
+   * Divides the rows into strips and creates the threads.
+   *
+   * @param numberOfThreads int
+   */
+  public void setNumberOfThreads(int numberOfThreads) {
+    shutdown();
+    this.numberOfThreads = Math.max(1, Math.min(numberOfThreads, L));
+    int strips = this.numberOfThreads;
+    firstRow = new int[strips+1];
+    for(int k = 0;k<=strips;k++) {
+      firstRow[k] = (int) ((long) k*L/strips);
+    }
+    Random random = new Random(seed);
+    randomState = new long[strips];
+    changes = new long[strips][3];
+    evenTasks.clear();
+    oddTasks.clear();
+    for(int k = 0;k<strips;k++) {
+      randomState[k] = random.nextLong()|1; // state must not be zero
+      final int strip = k;
+      evenTasks.add(new Callable<Object>() {
+        public Object call() {
+          updateStrip(strip, 0);
+          return null;
+        }
+      });
+      oddTasks.add(new Callable<Object>() {
+        public Object call() {
+          updateStrip(strip, 1);
+          return null;
+        }
+      });
+    }
+    if(strips>1) {
+      pool = Executors.newFixedThreadPool(strips, DAEMON_THREADS);
+    }
+  }
+
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * Stops the threads. A new pool is created by setNumberOfThreads.
+   */
+  public void shutdown() {
+    if(pool!=null) {
+      pool.shutdown();
+      pool = null;
+    }
+  }
+
+  public double specificHeat() {
+    double energySquaredAverage = energySquaredAccumulator/mcs;
+    double energyAverage = energyAccumulator/mcs;
+    double heatCapacity = energySquaredAverage-energyAverage*energyAverage;
+    heatCapacity = heatCapacity/(temperature*temperature);
+    return(heatCapacity/N);
+  }
+
+  public double susceptibility() {
+    double magnetizationSquaredAverage = magnetizationSquaredAccumulator/mcs;
+    double magnetizationAverage = magnetizationAccumulator/mcs;
+    return(magnetizationSquaredAverage-Math.pow(magnetizationAverage, 2))/(temperature*N);
+  }
+
+  public void resetData() {
+    mcs = 0;
+    energyAccumulator = 0;
+    energySquaredAccumulator = 0;
+    magnetizationAccumulator = 0;
+    magnetizationSquaredAccumulator = 0;
+    acceptedMoves = 0;
+  }
+
+  /**
+   * Does one sweep of the lattice, which is one Monte Carlo step per spin.
+   */
+  public void doOneMCStep() {
+    if(pool==null) {
+      for(int color = 0;color<2;color++) {
+        for(int k = 0;k<numberOfThreads;k++) {
+          updateStrip(k, color);
+        }
+      }
+    } else {
+      invokeAll(pool, evenTasks);
+      invokeAll(pool, oddTasks);
+    }
+    for(int k = 0;k<numberOfThreads;k++) {
+      energy += changes[k][0];
+      magnetization += changes[k][1];
+      acceptedMoves += changes[k][2];
+      changes[k][0] = changes[k][1] = changes[k][2] = 0;
+    }
+    energyAccumulator += energy;
+    energySquaredAccumulator += (double) energy*energy;
+    magnetizationAccumulator += magnetization;
+    magnetizationSquaredAccumulator += (double) magnetization*magnetization;
+    mcs++;
+  }
+
+  /**
+   * Updates the sites of the given color in the rows of a strip.
+   */
+  void updateStrip(int strip, int color) {
+    byte[] spin = this.spin;
+    int[] threshold = this.threshold;
+    int L = this.L;
+    long state = randomState[strip];
+    int dEnergy = 0, dMagnetization = 0, accepted = 0;
+    for(int j = firstRow[strip];j<firstRow[strip+1];j++) {
+      int row = j*L;
+      int up = (j==L-1) ? 0 : row+L;
+      int down = (j==0) ? N-L : row-L;
+      for(int i = (j+color)&1;i<L;i += 2) {
+        int left = (i==0) ? L-1 : i-1;
+        int right = (i==L-1) ? 0 : i+1;
+        int s = spin[row+i];
+        int dE = 2*s*(spin[row+left]+spin[row+right]+spin[up+i]+spin[down+i]);
+        if(dE>0) {
+          state ^= state<<13; // xorshift random number generator
+          state ^= state>>>7;
+          state ^= state<<17;
+          if((int) (state>>>33)>=threshold[dE]) {
+            continue;
+          }
+        }
+        spin[row+i] = (byte) -s;
+        dEnergy += dE;
+        dMagnetization -= 2*s;
+        accepted++;
+      }
+    }
+    randomState[strip] = state;
+    changes[strip][0] += dEnergy;
+    changes[strip][1] += dMagnetization;
+    changes[strip][2] += accepted;
+  }
+
+  /**
+   * Runs the tasks and waits until every task has finished, even if the calling thread is
+   * interrupted, so that no task is still changing the model when this method returns.
+   * ExecutorService.invokeAll is not used because it returns on an interrupt while tasks that
+   * have started are still running. The interrupt status is restored afterwards.
+   *
+   * @param pool the threads
+   * @param tasks the tasks
+   */
+  static void invokeAll(ExecutorService pool, List<Callable<Object>> tasks) {
+    List<Future<Object>> futures = new ArrayList<Future<Object>>(tasks.size());
+    for(Callable<Object> task : tasks) {
+      futures.add(pool.submit(task));
+    }
+    boolean interrupted = false;
+    Throwable failure = null;
+    for(Future<Object> future : futures) {
+      while(true) {
+        try {
+          future.get();
+          break;
+        } catch(InterruptedException ex) {
+          interrupted = true; // keep waiting and restore the interrupt status afterwards
+        } catch(ExecutionException ex) {
+          if(failure==null) {
+            failure = ex.getCause();
+          }
+          break;
+        }
+      }
+    }
+    if(interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if(failure!=null) {
+      throw new RuntimeException(failure);
+    }
+  }
+
+  /**
+   * Copies the spins to a lattice frame for display.
+   *
+   * @param lattice LatticeFrame
+   */
+  public void copyToLattice(LatticeFrame lattice) {
+    if((displayValues==null)||(displayValues.length!=L)) {
+      displayValues = new byte[L][L];
+      lattice.resizeLattice(L, L);
+      lattice.setIndexedColor(1, Color.red);
+      lattice.setIndexedColor(-1, Color.green);
+    }
+    for(int i = 0;i<L;i++) {
+      byte[] column = displayValues[i];
+      for(int j = 0;j<L;j++) {
+        column[j] = spin[i+j*L];
+      }
+    }
+    lattice.setAll(displayValues);
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
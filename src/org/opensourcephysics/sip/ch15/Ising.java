@@ -7,6 +7,7 @@
 
 package org.opensourcephysics.sip.ch15;
 import java.awt.*;
+import java.io.*;
 import org.opensourcephysics.frames.*;
 
 /**
@@ -17,6 +18,9 @@ import org.opensourcephysics.frames.*;
  */
 public class Ising {
   public static final double criticalTemperature = 2.0/Math.log(1.0+Math.sqrt(2.0));
+  public static final int METROPOLIS = 0, WOLFF = 1, SWENDSEN_WANG = 2;
+  public int algorithm = METROPOLIS;
+  public int clustersPerStep = 1;     // number of Wolff clusters flipped in each step
   public int L = 32;
   public int N = L*L;                 // number of spins
   public double temperature = criticalTemperature;
@@ -29,12 +33,21 @@ public class Ising {
   public double magnetizationSquaredAccumulator = 0;
   public int acceptedMoves = 0;
   public double[] w = new double[9]; // array to hold Boltzmann factors
+  public long randomState = new java.util.Random().nextLong()|1; // xorshift state, must not be zero
   public LatticeFrame lattice;
+  public boolean recordHistogram = false; // set before initialize
+  public IsingHistogram histogram;        // histogram of E at the current temperature if recordHistogram is true
+  // histograms of the runs finished when the temperature changed, ready for IsingHistogram.reweight
+  public java.util.ArrayList<IsingHistogram> finishedHistograms = new java.util.ArrayList<IsingHistogram>();
+  int[] stack, parent;                // work space for the cluster algorithms
+  int[] neighbor;                     // neighbor table of the square lattice
+  byte[] spins;
 
   public void initialize(int L, LatticeFrame displayFrame) {
     lattice = displayFrame;
     this.L = L;
     N = L*L;
+    neighbor = IsingLattice.square(L).neighbor;
     lattice.resizeLattice(L, L); // set lattice size
     lattice.setIndexedColor(1, Color.red);
     lattice.setIndexedColor(-1, Color.green);
@@ -45,6 +58,8 @@ public class Ising {
     }
     magnetization = N;
     energy = -2*N; // minimum energy
+    histogram = recordHistogram ? new IsingHistogram(N, temperature) : null;
+    finishedHistograms.clear();
     resetData();
     w[8] = Math.exp(-8.0/temperature); // other array elements never occur for H = 0
     w[4] = Math.exp(-4.0/temperature);
@@ -64,6 +79,30 @@ public class Ising {
     return(magnetizationSquaredAverage-Math.pow(magnetizationAverage, 2))/(temperature*N);
   }
 
+  /**
+   * Opens a time series file with int columns mcs, energy and magnetization.
+   *
+   * @param file the file, which is appended to if it exists
+   * @return the writer
+   * @throws IOException
+   */
+  public static TimeSeriesWriter openTimeSeries(File file) throws IOException {
+    return new TimeSeriesWriter(file, new String[] {"mcs", "energy", "magnetization"}, new byte[] {TimeSeriesWriter.INT, TimeSeriesWriter.INT, TimeSeriesWriter.INT});
+  }
+
+  /**
+   * Appends the current mcs, energy and magnetization to a time series.
+   *
+   * @param timeSeries a writer opened by openTimeSeries
+   * @throws IOException
+   */
+  public void writeTimeSeries(TimeSeriesWriter timeSeries) throws IOException {
+    timeSeries.put(mcs);
+    timeSeries.put(energy);
+    timeSeries.put(magnetization);
+    timeSeries.endRow();
+  }
+
   public void resetData() {
     mcs = 0;
     energyAccumulator = 0;
@@ -71,14 +110,44 @@ public class Ising {
     magnetizationAccumulator = 0;
     magnetizationSquaredAccumulator = 0;
     acceptedMoves = 0;
+    if(histogram!=null) {
+      histogram.clear(temperature);
+    }
   }
 
+  /**
+   * Does one Monte Carlo step per spin using the selected algorithm and accumulates the data.
+   */
   public void doOneMCStep() {
+    if(algorithm==WOLFF) {
+      doWolffSweep();
+    } else if(algorithm==SWENDSEN_WANG) {
+      doSwendsenWangStep();
+    } else {
+      doMetropolisSweep();
+    }
+    energyAccumulator += energy;
+    energySquaredAccumulator += energy*energy;
+    magnetizationAccumulator += magnetization;
+    magnetizationSquaredAccumulator += magnetization*magnetization;
+    if(histogram!=null) {
+      if(histogram.temperature!=temperature) { // a histogram holds data at one temperature
+        if(histogram.numberOfSamples>0) {
+          finishedHistograms.add(histogram);
+        }
+        histogram = new IsingHistogram(N, temperature);
+      }
+      histogram.record(energy, magnetization);
+    }
+    mcs++;
+  }
+
+  void doMetropolisSweep() {
     for(int k = 0;k<N;++k) {
-      int i = (int) (Math.random()*L);
-      int j = (int) (Math.random()*L);
+      int i = (int) (random()*L);
+      int j = (int) (random()*L);
       int dE = 2*lattice.getValue(i, j)*(lattice.getValue((i+1)%L, j)+lattice.getValue((i-1+L)%L, j)+lattice.getValue(i, (j+1)%L)+lattice.getValue(i, (j-1+L)%L));
-      if((dE<=0)||(w[dE]>Math.random())) {
+      if((dE<=0)||(w[dE]>random())) {
         int newSpin = -lattice.getValue(i, j);
         lattice.setValue(i, j, newSpin);
         acceptedMoves++;
@@ -86,11 +155,149 @@ public class Ising {
         magnetization += 2*newSpin;
       }
     }
-    energyAccumulator += energy;
-    energySquaredAccumulator += energy*energy;
-    magnetizationAccumulator += magnetization;
-    magnetizationSquaredAccumulator += magnetization*magnetization;
-    mcs++;
+  }
+
+  /**
+   * Flips clustersPerStep Wolff clusters. Sites are numbered s = i+j*L.
+   *
+   * The number of clusters must not depend on their sizes or the averages would be biased,
+   * so the mean number of spins flipped in a step is clustersPerStep times the mean cluster size.
+   */
+  void doWolffSweep() {
+    if((stack==null)||(stack.length!=N)) {
+      stack = new int[N];
+    }
+    double pAdd = 1-Math.exp(-2.0/temperature);
+    int flipped = 0;
+    for(int cluster = 0;cluster<clustersPerStep;cluster++) {
+      int seed = (int) (random()*N);
+      int clusterSpin = lattice.getValue(seed%L, seed/L);
+      flipSpin(seed); // flipped spins are no longer parallel to clusterSpin so are not added twice
+      stack[0] = seed;
+      int top = 1;
+      while(top>0) {
+        int s = stack[--top];
+        for(int k = 0;k<4;k++) {
+          int neighbor = getNeighbor(s, k);
+          if((lattice.getValue(neighbor%L, neighbor/L)==clusterSpin)&&(random()<pAdd)) {
+            flipSpin(neighbor);
+            stack[top++] = neighbor;
+          }
+        }
+        flipped++;
+      }
+    }
+    acceptedMoves += flipped;
+  }
+
+  /**
+   * Returns a uniform random number in [0, 1) from an xorshift generator. The generator is used
+   * instead of Math.random so that its state can be saved in a checkpoint.
+   *
+   * @return the random number
+   */
+  public double random() {
+    randomState ^= randomState<<13;
+    randomState ^= randomState>>>7;
+    randomState ^= randomState<<17;
+    return(randomState>>>11)*0x1.0p-53;
+  }
+
+  // flips the spin at site s and updates the energy and magnetization
+  void flipSpin(int s) {
+    int i = s%L, j = s/L;
+    int spin = lattice.getValue(i, j);
+    energy += 2*spin*(lattice.getValue((i+1)%L, j)+lattice.getValue((i-1+L)%L, j)+lattice.getValue(i, (j+1)%L)+lattice.getValue(i, (j-1+L)%L));
+    magnetization -= 2*spin;
+    lattice.setValue(i, j, -spin);
+  }
+
+  /**
+   * Forms Swendsen-Wang clusters by joining parallel neighbors with probability 1-exp(-2/T)
+   * and flips each cluster with probability 1/2.
+   *
+   * The clusters are labeled using the union-find method used in ch12.Clusters: parent[s] is
+   * the parent of site s or minus the cluster size if s is a root.
+   */
+  void doSwendsenWangStep() {
+    if((parent==null)||(parent.length!=N)) {
+      parent = new int[N];
+      stack = new int[N];
+      spins = new byte[N];
+    }
+    double pAdd = 1-Math.exp(-2.0/temperature);
+    for(int s = 0;s<N;s++) {
+      spins[s] = (byte) lattice.getValue(s%L, s/L);
+      parent[s] = -1;
+    }
+    for(int s = 0;s<N;s++) {
+      for(int k = 1;k<4;k += 2) { // bonds to the right and above
+        int neighbor = getNeighbor(s, k);
+        if((spins[s]==spins[neighbor])&&(random()<pAdd)) {
+          mergeRoots(findRoot(s), findRoot(neighbor));
+        }
+      }
+    }
+    for(int s = 0;s<N;s++) {
+      if(parent[s]<0) {
+        stack[s] = (random()<0.5) ? 1 : 0; // stack[root] is 1 if the cluster is flipped
+      }
+    }
+    for(int s = 0;s<N;s++) {
+      if(stack[findRoot(s)]==1) {
+        lattice.setValue(s%L, s/L, -spins[s]);
+        acceptedMoves++;
+      }
+    }
+    computeEnergyAndMagnetization();
+  }
+
+  // returns the root of the cluster containing site s and points the sites on the path to the root
+  int findRoot(int s) {
+    int root = s;
+    while(parent[root]>=0) {
+      root = parent[root];
+    }
+    while(parent[s]>=0) { // path compression
+      int next = parent[s];
+      parent[s] = root;
+      s = next;
+    }
+    return root;
+  }
+
+  // merges two clusters by pointing the root of the smaller cluster to the root of the larger
+  void mergeRoots(int r1, int r2) {
+    if(r1==r2) {
+      return;
+    }
+    if(-parent[r1]<-parent[r2]) {
+      int temp = r1;
+      r1 = r2;
+      r2 = temp;
+    }
+    parent[r1] += parent[r2];
+    parent[r2] = r1;
+  }
+
+  // returns neighbor k of site s: 0 (left), 1 (right), 2 (down), or 3 (above)
+  int getNeighbor(int s, int k) {
+    return neighbor[4*s+k];
+  }
+
+  /**
+   * Computes the energy and magnetization from the spins.
+   */
+  public void computeEnergyAndMagnetization() {
+    energy = 0;
+    magnetization = 0;
+    for(int i = 0;i<L;i++) {
+      for(int j = 0;j<L;j++) {
+        int spin = lattice.getValue(i, j);
+        energy -= spin*(lattice.getValue((i+1)%L, j)+lattice.getValue(i, (j+1)%L));
+        magnetization += spin;
+      }
+    }
   }
 }
 
@@ -6,6 +6,7 @@
  */
 
 package org.opensourcephysics.sip.ch15;
+import java.io.*;
 import org.opensourcephysics.controls.*;
 import org.opensourcephysics.frames.*;
 
@@ -19,6 +20,11 @@ public class IsingApp extends AbstractSimulation {
   Ising ising = new Ising();
   LatticeFrame displayFrame = new LatticeFrame("Ising Model");
   PlotFrame plotFrame = new PlotFrame("time", "E and M", "Ising model");;
+  TimeSeriesWriter timeSeries; // records E and M every mcs
+  static final int MAXIMUM_PLOT_POINTS = 10000; // points kept in the plot while a time series is recorded
+  static final String[] ALGORITHMS = {"Metropolis", "Wolff", "Swendsen-Wang"}; // indexed by Ising.METROPOLIS ...
+  String checkpointFilename = "";
+  int mcsBetweenCheckpoints;
 
   public IsingApp() {
     plotFrame.setXYColumnNames(0, "mcs", "M", "magnetization");
@@ -27,14 +33,126 @@ public class IsingApp extends AbstractSimulation {
 
   public void initialize() {
     ising.temperature = control.getDouble("temperature");
+    String algorithm = control.getString("algorithm");
+    if(algorithm.equalsIgnoreCase("Wolff")) {
+      ising.algorithm = Ising.WOLFF;
+    } else if(algorithm.equalsIgnoreCase("Swendsen-Wang")) {
+      ising.algorithm = Ising.SWENDSEN_WANG;
+    } else {
+      ising.algorithm = Ising.METROPOLIS;
+    }
+    ising.clustersPerStep = control.getInt("Wolff clusters per step");
     ising.initialize(control.getInt("L"), displayFrame);
+    openTimeSeries(control.getString("time series file (blank for none)").trim());
     resetData();
+    checkpointFilename = control.getString("checkpoint file (blank for none)").trim();
+    mcsBetweenCheckpoints = Math.max(1, control.getInt("mcs between checkpoints"));
+    if((checkpointFilename.length()>0)&&new File(checkpointFilename).exists()) {
+      restoreCheckpoint();
+    }
+  }
+
+  /**
+   * Restores the model from the checkpoint file and copies the restored parameters to the control.
+   * Time series rows written after the checkpoint are discarded so that they are not repeated.
+   */
+  public void restoreCheckpoint() {
+    int timeSeriesRows;
+    try {
+      timeSeriesRows = IsingCheckpoint.restore(ising, new File(checkpointFilename));
+    } catch(IOException ex) {
+      control.println("Checkpoint not restored: "+ex.getMessage());
+      return;
+    }
+    if((timeSeries!=null)&&(timeSeriesRows>=0)) {
+      try {
+        timeSeries.truncate(timeSeriesRows);
+      } catch(IOException ex) {
+        control.println("Time series closed: "+ex.getMessage());
+        openTimeSeries("");
+      }
+    }
+    control.setValue("L", ising.L);
+    control.setValue("algorithm", ALGORITHMS[ising.algorithm]);
+    control.setValue("Wolff clusters per step", ising.clustersPerStep);
+    control.setAdjustableValue("temperature", ising.temperature);
+    control.println("Resumed from checkpoint at mcs = "+ising.mcs);
+  }
+
+  /**
+   * Saves the model to the checkpoint file and flushes the time series.
+   */
+  public void saveCheckpoint() {
+    if(checkpointFilename.length()==0) {
+      return;
+    }
+    try {
+      if(timeSeries!=null) {
+        timeSeries.flush();
+      }
+      IsingCheckpoint.save(ising, new File(checkpointFilename), (timeSeries==null) ? -1 : timeSeries.getNumberOfRows());
+    } catch(IOException ex) {
+      control.println("Checkpoint not saved: "+ex.getMessage());
+    }
+  }
+
+  /**
+   * Opens a binary time series file, replacing any time series that is open.
+   * The plot only keeps the most recent points while the time series is recorded.
+   *
+   * @param filename the file name or an empty string for no time series
+   */
+  public void openTimeSeries(String filename) {
+    try {
+      if(timeSeries!=null) {
+        timeSeries.close();
+        timeSeries = null;
+      }
+      if(filename.length()>0) {
+        timeSeries = Ising.openTimeSeries(new File(filename));
+      }
+    } catch(IOException ex) {
+      control.println("Time series not saved: "+ex.getMessage());
+      timeSeries = null;
+    }
+    if(timeSeries!=null) {
+      plotFrame.setMaximumPoints(0, MAXIMUM_PLOT_POINTS);
+      plotFrame.setMaximumPoints(1, MAXIMUM_PLOT_POINTS);
+    }
+  }
+
+  void writeTimeSeries() {
+    if(timeSeries==null) {
+      return;
+    }
+    try {
+      ising.writeTimeSeries(timeSeries);
+    } catch(IOException ex) {
+      control.println("Time series closed: "+ex.getMessage());
+      openTimeSeries("");
+    }
+  }
+
+  void flushTimeSeries() {
+    if(timeSeries==null) {
+      return;
+    }
+    control.println("time series rows = "+timeSeries.getNumberOfRows());
+    try {
+      timeSeries.flush();
+    } catch(IOException ex) {
+      control.println("Time series not flushed: "+ex.getMessage());
+    }
   }
 
   public void doStep() {
     ising.doOneMCStep();
+    writeTimeSeries();
     plotFrame.append(0, ising.mcs, ising.magnetization*1.0/ising.N);
     plotFrame.append(1, ising.mcs, ising.energy*1.0/ising.N);
+    if(ising.mcs%mcsBetweenCheckpoints==0) {
+      saveCheckpoint();
+    }
   }
 
   public void stop() {
@@ -45,6 +163,8 @@ public class IsingApp extends AbstractSimulation {
     control.println("specific heat = "+ising.specificHeat());
     control.println("<M> = "+ising.magnetizationAccumulator*norm);
     control.println("susceptibility = "+ising.susceptibility());
+    flushTimeSeries();
+    saveCheckpoint();
   }
 
   public void startRunning() {
@@ -55,6 +175,11 @@ public class IsingApp extends AbstractSimulation {
 
   public void reset() {
     control.setValue("L", 32);
+    control.setValue("algorithm", "Metropolis"); // or Wolff or Swendsen-Wang
+    control.setValue("Wolff clusters per step", 10);
+    control.setValue("time series file (blank for none)", "");
+    control.setValue("checkpoint file (blank for none)", "");
+    control.setValue("mcs between checkpoints", 10000);
     control.setAdjustableValue("temperature", Ising.criticalTemperature);
     enableStepsPerDisplay(true); // allow user to speed up simulation
   }
@@ -6,6 +6,7 @@
  */
 
 package org.opensourcephysics.sip.ch15;
+import java.io.*;
 import java.util.*;
 import javax.swing.*;
 import org.opensourcephysics.controls.*;
@@ -14,7 +15,12 @@ import org.opensourcephysics.frames.*;
 
 /**
  * IsingAutoCorrelatorApp computes the energy and magnetization
- * time autocorrelation function from IsingApp XML input data.
+ * time autocorrelation function from IsingApp XML input data or from a binary time series
+ * recorded by IsingApp.
+ *
+ * The correlation functions are computed with the fast Fourier transform so that series
+ * of millions of points can be analyzed. The integrated autocorrelation time and binned
+ * errors of the mean are printed for both series.
  *
  * @author Wolfgang Christian, Jan Tobochnik, Harvey Gould
  * @version 1.0  revised 04/10/05
@@ -23,6 +29,7 @@ public class IsingAutoCorrelatorApp extends AbstractCalculation {
   PlotFrame plotFrame = new PlotFrame("tau", "<E(t+tau)E(t)> and <M(t+tau)M(t)>", "Time correlations");
   double[] energy = new double[0], magnetization = new double[0];
   int numberOfPoints;
+  static final int MINIMUM_BLOCKS = 32;
 
   /**
    * Creates new arrays, reads data in and computes correlation.
@@ -43,6 +50,12 @@ public class IsingAutoCorrelatorApp extends AbstractCalculation {
     } else {
       return;
     }
+    if(TimeSeriesReader.isTimeSeries(new File(filename))) {
+      readTimeSeries(new File(filename));
+      calculate();
+      plotFrame.repaint();
+      return;
+    }
     XMLControlElement xmlControl = new XMLControlElement(filename);
     if(xmlControl.failedToRead()) {
       control.println("failed to read: "+filename);
@@ -67,40 +80,80 @@ public class IsingAutoCorrelatorApp extends AbstractCalculation {
   }
 
   /**
-   * Computes and plots correlation functions
+   * Reads the energy and magnetization columns of a binary time series written by Ising.
+   * The values are totals rather than values per spin.
+   *
+   * @param file the time series file
+   */
+  public void readTimeSeries(File file) {
+    try {
+      TimeSeriesReader reader = new TimeSeriesReader(file);
+      try {
+        int energyColumn = reader.getColumnIndex("energy");
+        int magnetizationColumn = reader.getColumnIndex("magnetization");
+        if((energyColumn<0)||(magnetizationColumn<0)) {
+          control.println("no energy and magnetization columns in: "+file.getName());
+          return;
+        }
+        energy = reader.readColumn(energyColumn);
+        magnetization = reader.readColumn(magnetizationColumn);
+        numberOfPoints = reader.numberOfRows;
+      } finally {
+        reader.close();
+      }
+      control.println("Reading: "+file.getAbsolutePath());
+      control.println("Number of points = "+numberOfPoints);
+    } catch(IOException ex) {
+      control.println("failed to read: "+file.getName()+" "+ex.getMessage());
+    }
+  }
+
+  /**
+   * Computes and plots correlation functions using the fast Fourier transform and prints
+   * the integrated autocorrelation times and the binning error estimates.
    * @param tauMax is the maximum time for correlation functions
    */
   public void computeCorrelation(int tauMax) {
     plotFrame.clearData();
-    double energyAccumulator = 0, magnetizationAccumulator = 0;
-    double energySquaredAccumulator = 0, magnetizationSquaredAccumulator = 0;
-    for(int t = 0;t<numberOfPoints;t++) {
-      energyAccumulator += energy[t];
-      magnetizationAccumulator += magnetization[t];
-      energySquaredAccumulator += energy[t]*energy[t];
-      magnetizationSquaredAccumulator += magnetization[t]*magnetization[t];
+    if(numberOfPoints<2) {
+      return;
     }
-    double averageEnergySquared = Math.pow(energyAccumulator/numberOfPoints, 2);
-    double averageMagnetizationSquared = Math.pow(magnetizationAccumulator/numberOfPoints, 2);
-    // compute normalization factors
-    double normE = (energySquaredAccumulator/numberOfPoints)-averageEnergySquared;
-    double normM = (magnetizationSquaredAccumulator/numberOfPoints)-averageMagnetizationSquared;
+    // correlation function defined so that c(0) = 1 and c(infinity) -> 0
+    double[][] c = AutoCorrelation.compute(magnetization, energy);
+    tauMax = Math.min(tauMax, numberOfPoints-1);
     for(int tau = 1;tau<=tauMax;tau++) {
-      double c_MAccumulator = 0;
-      double c_EAccumulator = 0;
-      int counter = 0;
-      for(int t = 0;t<numberOfPoints-tau;t++) {
-        c_MAccumulator += magnetization[t]*magnetization[t+tau];
-        c_EAccumulator += energy[t]*energy[t+tau];
-        counter++;
-      }
-      // correlation function defined so that c(0) = 1 and c(infinity) -> 0
-      plotFrame.append(0, tau, ((c_MAccumulator/counter)-averageMagnetizationSquared)/normM);
-      plotFrame.append(1, tau, ((c_EAccumulator/counter)-averageEnergySquared)/normE);
+      plotFrame.append(0, tau, c[0][tau]);
+      plotFrame.append(1, tau, c[1][tau]);
     }
+    printStatistics("M", magnetization, c[0]);
+    printStatistics("E", energy, c[1]);
     plotFrame.setVisible(true);
   }
 
+  /**
+   * Prints the integrated autocorrelation time and the error of the mean of a series.
+   * @param name the name of the series
+   * @param x the series
+   * @param c the normalized autocorrelation function of the series
+   */
+  void printStatistics(String name, double[] x, double[] c) {
+    double[] tau = AutoCorrelation.integratedTime(c, numberOfPoints);
+    control.println("tau_int("+name+") = "+decimalFormat.format(tau[0])+" +/- "+decimalFormat.format(tau[1])
+                    +" (window = "+(int) tau[2]+")");
+    double[] errors = AutoCorrelation.binningErrors(x, MINIMUM_BLOCKS);
+    if(errors.length==0) {
+      return;
+    }
+    double naiveError = errors[0], binnedError = errors[errors.length-1];
+    double mean = AutoCorrelation.mean(x);
+    control.println("<"+name+"> = "+decimalFormat.format(mean)+" +/- "+decimalFormat.format(binnedError)
+                    +" (binned), "+decimalFormat.format(naiveError)+" (uncorrelated)");
+    if(naiveError>0) {
+      control.println("binning estimate of tau_int("+name+") = "
+                      +decimalFormat.format(0.5*Math.pow(binnedError/naiveError, 2)));
+    }
+  }
+
   /**
    * Resets input parameter
    */
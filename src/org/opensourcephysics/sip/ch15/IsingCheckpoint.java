@@ -0,0 +1,245 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * IsingCheckpoint saves and restores the complete state of an Ising model in a compact binary
+ * file so that a long run can be resumed exactly where it stopped.
+ *
+ * The spins are packed 64 to a long, so a 4096 x 4096 lattice needs 2 MB. The checkpoint is
+ * written to a temporary file that then replaces the old checkpoint, so an interrupted save
+ * leaves the previous checkpoint intact. All values are little-endian.
+ *
+ * <pre>
+ * header: magic "ISINGCP1", int version, int L, int algorithm, int clustersPerStep,
+ *         double temperature, int mcs, int energy, int magnetization, int acceptedMoves,
+ *         double energy, energy squared, magnetization and magnetization squared accumulators,
+ *         long random number generator state, int 1 if a histogram follows and 0 otherwise,
+ *         int number of time series rows written when the checkpoint was saved or -1 if none
+ * spins:  (N+63)/64 longs, bit k%64 of long k/64 is set if the spin at i = k/L, j = k%L is up
+ * histogram (optional): double temperature, long numberOfSamples, N+1 longs energyCounts,
+ *         N+1 longs magnetizationSums, N+1 doubles magnetizationSquaredSums
+ * </pre>
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class IsingCheckpoint {
+  public static final byte[] MAGIC = {'I', 'S', 'I', 'N', 'G', 'C', 'P', '1'};
+  public static final int VERSION = 3;
+  public static final int HEADER_SIZE = 96;
+
+  /**
+   * Saves the state of the model.
+   *
+   * @param ising the model
+   * @param file the checkpoint file, which is replaced
+   * @throws IOException
+   */
+  public static void save(Ising ising, File file) throws IOException {
+    save(ising, file, -1);
+  }
+
+  /**
+   * Saves the state of the model together with the number of rows of its time series so that
+   * rows written after the checkpoint can be discarded when the run is resumed.
+   *
+   * @param ising the model
+   * @param file the checkpoint file, which is replaced
+   * @param timeSeriesRows the number of time series rows written, or -1 if there is no time series
+   * @throws IOException
+   */
+  public static void save(Ising ising, File file, int timeSeriesRows) throws IOException {
+    int words = (ising.N+63)/64;
+    IsingHistogram histogram = ising.histogram;
+    long size = HEADER_SIZE+8L*words;
+    if(histogram!=null) {
+      size += 16+3*8L*(ising.N+1);
+    }
+    if(size>Integer.MAX_VALUE) {
+      throw new IOException("checkpoint is too large");
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect((int) size).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putInt(ising.L);
+    buffer.putInt(ising.algorithm);
+    buffer.putInt(ising.clustersPerStep);
+    buffer.putDouble(ising.temperature);
+    buffer.putInt(ising.mcs);
+    buffer.putInt(ising.energy);
+    buffer.putInt(ising.magnetization);
+    buffer.putInt(ising.acceptedMoves);
+    buffer.putDouble(ising.energyAccumulator);
+    buffer.putDouble(ising.energySquaredAccumulator);
+    buffer.putDouble(ising.magnetizationAccumulator);
+    buffer.putDouble(ising.magnetizationSquaredAccumulator);
+    buffer.putLong(ising.randomState);
+    buffer.putInt((histogram==null) ? 0 : 1);
+    buffer.putInt(timeSeriesRows);
+    buffer.position(HEADER_SIZE);
+    int L = ising.L;
+    long bits = 0;
+    int bit = 0;
+    for(int i = 0;i<L;i++) {
+      for(int j = 0;j<L;j++) {
+        if(ising.lattice.getValue(i, j)>0) {
+          bits |= 1L<<bit;
+        }
+        if(++bit==64) {
+          buffer.putLong(bits);
+          bits = 0;
+          bit = 0;
+        }
+      }
+    }
+    if(bit>0) {
+      buffer.putLong(bits);
+    }
+    if(histogram!=null) {
+      buffer.putDouble(histogram.temperature);
+      buffer.putLong(histogram.numberOfSamples);
+      putLongs(buffer, histogram.energyCounts);
+      putLongs(buffer, histogram.magnetizationSums);
+      buffer.asDoubleBuffer().put(histogram.magnetizationSquaredSums);
+      buffer.position(buffer.position()+8*histogram.magnetizationSquaredSums.length);
+    }
+    buffer.flip();
+    Path path = file.toPath().toAbsolutePath();
+    Path temporary = path.resolveSibling(path.getFileName()+".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while(buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+    try {
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch(AtomicMoveNotSupportedException ex) {
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Restores the state of the model. The model is initialized with its lattice frame
+   * if its size differs from the size of the saved lattice.
+   *
+   * @param ising the model, which must have a lattice frame
+   * @param file the checkpoint file
+   * @return the number of time series rows written when the checkpoint was saved, or -1 if none
+   * @throws IOException if the file cannot be read or is not an Ising checkpoint
+   */
+  public static int restore(Ising ising, File file) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if((size<HEADER_SIZE)||(size>Integer.MAX_VALUE)) {
+        throw new IOException("not an Ising checkpoint");
+      }
+      buffer = ByteBuffer.allocateDirect((int) size).order(ByteOrder.LITTLE_ENDIAN);
+      while(buffer.hasRemaining()&&(channel.read(buffer)>=0)) {}
+      buffer.flip();
+    }
+    byte[] magic = new byte[MAGIC.length];
+    buffer.get(magic);
+    if(!java.util.Arrays.equals(magic, MAGIC)||(buffer.getInt()!=VERSION)) {
+      throw new IOException("not an Ising checkpoint");
+    }
+    int L = buffer.getInt();
+    int words = (L*L+63)/64;
+    if((L<=0)||(buffer.limit()<HEADER_SIZE+8L*words)) {
+      throw new IOException("checkpoint is truncated");
+    }
+    if((ising.L!=L)||(ising.N!=L*L)) {
+      ising.initialize(L, ising.lattice);
+    }
+    ising.algorithm = buffer.getInt();
+    ising.clustersPerStep = buffer.getInt();
+    ising.temperature = buffer.getDouble();
+    ising.mcs = buffer.getInt();
+    ising.energy = buffer.getInt();
+    ising.magnetization = buffer.getInt();
+    ising.acceptedMoves = buffer.getInt();
+    ising.energyAccumulator = buffer.getDouble();
+    ising.energySquaredAccumulator = buffer.getDouble();
+    ising.magnetizationAccumulator = buffer.getDouble();
+    ising.magnetizationSquaredAccumulator = buffer.getDouble();
+    ising.randomState = buffer.getLong();
+    boolean hasHistogram = buffer.getInt()==1;
+    int timeSeriesRows = buffer.getInt();
+    ising.w[8] = Math.exp(-8.0/ising.temperature);
+    ising.w[4] = Math.exp(-4.0/ising.temperature);
+    buffer.position(HEADER_SIZE);
+    long bits = 0;
+    int bit = 64;
+    for(int i = 0;i<L;i++) {
+      for(int j = 0;j<L;j++) {
+        if(bit==64) {
+          bits = buffer.getLong();
+          bit = 0;
+        }
+        ising.lattice.setValue(i, j, (((bits>>>bit)&1)==1) ? 1 : -1);
+        bit++;
+      }
+    }
+    if(hasHistogram) {
+      IsingHistogram histogram = new IsingHistogram(ising.N, buffer.getDouble());
+      if(buffer.remaining()!=8L*(1+3*(ising.N+1))) {
+        throw new IOException("checkpoint histogram is truncated");
+      }
+      histogram.numberOfSamples = buffer.getLong();
+      getLongs(buffer, histogram.energyCounts);
+      getLongs(buffer, histogram.magnetizationSums);
+      buffer.asDoubleBuffer().get(histogram.magnetizationSquaredSums);
+      ising.recordHistogram = true;
+      ising.histogram = histogram;
+    } else {
+      ising.recordHistogram = false;
+      ising.histogram = null;
+    }
+    return timeSeriesRows;
+  }
+
+  private static void putLongs(ByteBuffer buffer, long[] values) {
+    buffer.asLongBuffer().put(values);
+    buffer.position(buffer.position()+8*values.length);
+  }
+
+  private static void getLongs(ByteBuffer buffer, long[] values) {
+    buffer.asLongBuffer().get(values);
+    buffer.position(buffer.position()+8*values.length);
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
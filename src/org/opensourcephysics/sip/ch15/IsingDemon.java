@@ -7,6 +7,7 @@
 
 package org.opensourcephysics.sip.ch15;
 import java.awt.*;
+import java.io.*;
 import org.opensourcephysics.frames.*;
 
 /**
@@ -65,6 +66,31 @@ public class IsingDemon {
     return 4.0/Math.log(1.0+4.0/(demonEnergyAccumulator/(mcs*N)));
   }
 
+  /**
+   * Opens a time series file with int columns mcs, systemEnergy, demonEnergy and magnetization.
+   *
+   * @param file the file, which is appended to if it exists
+   * @return the writer
+   * @throws IOException
+   */
+  public static TimeSeriesWriter openTimeSeries(File file) throws IOException {
+    return new TimeSeriesWriter(file, new String[] {"mcs", "systemEnergy", "demonEnergy", "magnetization"}, new byte[] {TimeSeriesWriter.INT, TimeSeriesWriter.INT, TimeSeriesWriter.INT, TimeSeriesWriter.INT});
+  }
+
+  /**
+   * Appends the current mcs, energies and magnetization to a time series.
+   *
+   * @param timeSeries a writer opened by openTimeSeries
+   * @throws IOException
+   */
+  public void writeTimeSeries(TimeSeriesWriter timeSeries) throws IOException {
+    timeSeries.put(mcs);
+    timeSeries.put(systemEnergy);
+    timeSeries.put(demonEnergy);
+    timeSeries.put(magnetization);
+    timeSeries.endRow();
+  }
+
   public void resetData() {
     mcs = 0;
     systemEnergyAccumulator = 0;
@@ -6,6 +6,7 @@
  */
 
 package org.opensourcephysics.sip.ch15;
+import java.io.*;
 import org.opensourcephysics.controls.*;
 import org.opensourcephysics.frames.*;
 
@@ -24,15 +25,62 @@ public class IsingDemonApp extends AbstractSimulation {
   LatticeFrame displayFrame = new LatticeFrame("1D Ising Model");
   IsingDemon ising1D = new IsingDemon(displayFrame);
   PlotFrame plotFrame = new PlotFrame("E", "ln P", "Boltzmann distribution");
+  TimeSeriesWriter timeSeries; // records the energies and magnetization every mcs
 
   public void initialize() {
     ising1D.systemEnergy = control.getInt("Desired energy of system");
     ising1D.initialize(control.getInt("N"));
+    openTimeSeries(control.getString("time series file (blank for none)").trim());
     resetData();
   }
 
+  /**
+   * Opens a binary time series file, replacing any time series that is open.
+   *
+   * @param filename the file name or an empty string for no time series
+   */
+  public void openTimeSeries(String filename) {
+    try {
+      if(timeSeries!=null) {
+        timeSeries.close();
+        timeSeries = null;
+      }
+      if(filename.length()>0) {
+        timeSeries = IsingDemon.openTimeSeries(new File(filename));
+      }
+    } catch(IOException ex) {
+      control.println("Time series not saved: "+ex.getMessage());
+      timeSeries = null;
+    }
+  }
+
+  void writeTimeSeries() {
+    if(timeSeries==null) {
+      return;
+    }
+    try {
+      ising1D.writeTimeSeries(timeSeries);
+    } catch(IOException ex) {
+      control.println("Time series closed: "+ex.getMessage());
+      openTimeSeries("");
+    }
+  }
+
+  void flushTimeSeries() {
+    if(timeSeries==null) {
+      return;
+    }
+    control.println("time series rows = "+timeSeries.getNumberOfRows());
+    try {
+      timeSeries.flush();
+    } catch(IOException ex) {
+      control.println("Time series not flushed: "+ex.getMessage());
+    }
+  }
+
   public void doStep() {
     ising1D.doOneMCStep();
+    writeTimeSeries();
   }
 
   public void stop() {
@@ -51,11 +99,13 @@ public class IsingDemonApp extends AbstractSimulation {
     control.println("Temperature = "+ising1D.temperature());
     control.println("<M> = "+ising1D.mAccumulator*norm);
     control.println("<M^2> = "+ising1D.m2Accumulator*norm);
+    flushTimeSeries();
   }
 
   public void reset() {
     control.setValue("N", 100);
     control.setValue("Desired energy of system", -20);
+    control.setValue("time series file (blank for none)", "");
   }
 
   public void resetData() {
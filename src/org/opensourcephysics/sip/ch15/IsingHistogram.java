@@ -0,0 +1,281 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import java.io.*;
+import java.util.*;
+
+/**
+ * IsingHistogram accumulates the energy histogram H(E) of an Ising model together with the
+ * sums of |M| and M^2 at each energy and uses histogram reweighting to compute averages at
+ * other temperatures.
+ *
+ * For periodic boundary conditions E = -2N+4e with e = 0 ... N, so the storage grows as N
+ * rather than as the N^2 entries of a joint histogram of E and |M|.
+ *
+ * Single histogram reweighting estimates the density of states from one run at temperature
+ * T0 as g(E) ~ H(E)exp(E/T0). Multiple histogram reweighting combines runs at several
+ * temperatures by solving the Ferrenberg-Swendsen (WHAM) equations
+ *   g(E) = sum_r H_r(E) / sum_r n_r exp(f_r-E/T_r),  exp(-f_r) = sum_E g(E)exp(-E/T_r)
+ * by iteration. Averages of |M| and M^2 use their means at each energy, which do not depend
+ * on the temperature. All sums are done with logarithms to avoid overflow.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class IsingHistogram {
+  public int N;
+  public double temperature; // temperature of the run
+  public long[] energyCounts;               // H(E)
+  public long[] magnetizationSums;          // sum of |M| at each energy
+  public double[] magnetizationSquaredSums; // sum of M^2 at each energy, double to avoid overflow
+  public long numberOfSamples = 0;
+  public int maximumIterations = 10000;
+  public double tolerance = 1.0e-10;
+
+  /**
+   * Reweighted holds the averages per spin at one temperature.
+   */
+  public static class Reweighted {
+    public double temperature;
+    public double energy;                // <E>/N
+    public double specificHeat;          // (<E^2>-<E>^2)/(NT^2)
+    public double absoluteMagnetization; // <|M|>/N
+    public double susceptibility;        // (<M^2>-<|M|>^2)/(NT)
+
+    public String toString() {
+      return temperature+"\t"+energy+"\t"+specificHeat+"\t"+absoluteMagnetization+"\t"+susceptibility;
+    }
+  }
+
+  public IsingHistogram(int N, double temperature) {
+    this.N = N;
+    this.temperature = temperature;
+    energyCounts = new long[N+1];
+    magnetizationSums = new long[N+1];
+    magnetizationSquaredSums = new double[N+1];
+  }
+
+  /**
+   * Clears the histogram for a new run.
+   *
+   * @param temperature the temperature of the new run
+   */
+  public void clear(double temperature) {
+    this.temperature = temperature;
+    Arrays.fill(energyCounts, 0);
+    Arrays.fill(magnetizationSums, 0);
+    Arrays.fill(magnetizationSquaredSums, 0);
+    numberOfSamples = 0;
+  }
+
+  public void record(int energy, int magnetization) {
+    int e = (energy+2*N)/4;
+    energyCounts[e]++;
+    magnetizationSums[e] += Math.abs(magnetization);
+    magnetizationSquaredSums[e] += (double) magnetization*magnetization;
+    numberOfSamples++;
+  }
+
+  /**
+   * Records the energy and magnetization columns of a time series written by Ising.
+   *
+   * @param timeSeries the time series of a run at the temperature of this histogram
+   * @param firstRow the first row to record, so that equilibration steps can be skipped
+   * @throws IOException if the time series has no energy and magnetization columns
+   */
+  public void record(TimeSeriesReader timeSeries, int firstRow) throws IOException {
+    int energyColumn = timeSeries.getColumnIndex("energy");
+    int magnetizationColumn = timeSeries.getColumnIndex("magnetization");
+    if((energyColumn<0)||(magnetizationColumn<0)) {
+      throw new IOException("time series has no energy and magnetization columns");
+    }
+    Iterator<TimeSeriesReader.Chunk> chunks = timeSeries.chunks(firstRow, 1<<16, energyColumn, magnetizationColumn);
+    while(chunks.hasNext()) {
+      TimeSeriesReader.Chunk chunk = chunks.next();
+      for(int i = 0;i<chunk.numberOfRows;i++) {
+        record((int) chunk.values[0][i], (int) chunk.values[1][i]);
+      }
+    }
+  }
+
+  public double getEnergy(int e) {
+    return -2*N+4*e;
+  }
+
+  /**
+   * Computes the averages at the temperature T from this histogram alone.
+   *
+   * @param T double
+   * @return Reweighted
+   */
+  public Reweighted reweight(double T) {
+    return reweight(new IsingHistogram[] {this}, new double[] {T})[0];
+  }
+
+  /**
+   * Combines histograms from runs at different temperatures and computes the averages
+   * at each of the given temperatures.
+   *
+   * @param runs histograms with the same N
+   * @param T the temperatures
+   * @return Reweighted[]
+   */
+  public static Reweighted[] reweight(IsingHistogram[] runs, double[] T) {
+    IsingHistogram first = runs[0];
+    double[] logG = densityOfStates(runs);
+    double[][] moments = magnetizationMoments(runs);
+    Reweighted[] results = new Reweighted[T.length];
+    for(int t = 0;t<T.length;t++) {
+      double beta = 1/T[t];
+      double logZ = logSum(logG, beta, first);
+      double e1 = 0, e2 = 0, m1 = 0, m2 = 0;
+      for(int e = 0;e<logG.length;e++) {
+        if(logG[e]==Double.NEGATIVE_INFINITY) {
+          continue;
+        }
+        double E = first.getEnergy(e);
+        double p = Math.exp(logG[e]-beta*E-logZ);
+        e1 += p*E;
+        e2 += p*E*E;
+        m1 += p*moments[0][e];
+        m2 += p*moments[1][e];
+      }
+      Reweighted result = new Reweighted();
+      int N = first.N;
+      result.temperature = T[t];
+      result.energy = e1/N;
+      result.specificHeat = (e2-e1*e1)/(N*T[t]*T[t]);
+      result.absoluteMagnetization = m1/N;
+      result.susceptibility = (m2-m1*m1)/(N*T[t]);
+      results[t] = result;
+    }
+    return results;
+  }
+
+  /**
+   * Solves the multiple histogram equations for the logarithm of the density of states.
+   * Energies that were never visited have a logarithm of negative infinity.
+   *
+   * @param runs IsingHistogram[]
+   * @return double[]
+   */
+  public static double[] densityOfStates(IsingHistogram[] runs) {
+    IsingHistogram first = runs[0];
+    int R = runs.length;
+    double[] logG = new double[first.N+1];
+    double[] logH = new double[first.N+1];  // log of the total counts at each energy
+    double[] f = new double[R];             // f_r = -ln Z_r
+    double[] logN = new double[R];
+    for(int r = 0;r<R;r++) {
+      logN[r] = Math.log(runs[r].numberOfSamples);
+    }
+    for(int e = 0;e<logH.length;e++) {
+      long total = 0;
+      for(int r = 0;r<R;r++) {
+        total += runs[r].energyCounts[e];
+      }
+      logH[e] = (total>0) ? Math.log(total) : Double.NEGATIVE_INFINITY;
+    }
+    double[] terms = new double[R];
+    for(int iteration = 0;iteration<first.maximumIterations;iteration++) {
+      for(int e = 0;e<logG.length;e++) {
+        if(logH[e]==Double.NEGATIVE_INFINITY) {
+          logG[e] = Double.NEGATIVE_INFINITY;
+          continue;
+        }
+        double E = first.getEnergy(e);
+        for(int r = 0;r<R;r++) {
+          terms[r] = logN[r]+f[r]-E/runs[r].temperature;
+        }
+        logG[e] = logH[e]-logSum(terms);
+      }
+      double change = 0;
+      double f0 = -logSum(logG, 1/runs[0].temperature, first);
+      for(int r = 0;r<R;r++) { // f_0 = 0 fixes the arbitrary normalization of g(E)
+        double fr = -logSum(logG, 1/runs[r].temperature, first)-f0;
+        change = Math.max(change, Math.abs(fr-f[r]));
+        f[r] = fr;
+      }
+      if((R==1)||(change<first.tolerance)) {
+        break;
+      }
+    }
+    return logG;
+  }
+
+  // <|M|> and <M^2> at each energy from the combined histograms
+  static double[][] magnetizationMoments(IsingHistogram[] runs) {
+    IsingHistogram first = runs[0];
+    double[][] moments = new double[2][first.N+1];
+    for(int e = 0;e<=first.N;e++) {
+      double total = 0, m1 = 0, m2 = 0;
+      for(IsingHistogram run : runs) {
+        total += run.energyCounts[e];
+        m1 += run.magnetizationSums[e];
+        m2 += run.magnetizationSquaredSums[e];
+      }
+      if(total>0) {
+        moments[0][e] = m1/total;
+        moments[1][e] = m2/total;
+      }
+    }
+    return moments;
+  }
+
+  // log of sum over E of g(E)exp(-beta E)
+  static double logSum(double[] logG, double beta, IsingHistogram histogram) {
+    double max = Double.NEGATIVE_INFINITY;
+    for(int e = 0;e<logG.length;e++) {
+      max = Math.max(max, logG[e]-beta*histogram.getEnergy(e));
+    }
+    double sum = 0;
+    for(int e = 0;e<logG.length;e++) {
+      if(logG[e]!=Double.NEGATIVE_INFINITY) {
+        sum += Math.exp(logG[e]-beta*histogram.getEnergy(e)-max);
+      }
+    }
+    return max+Math.log(sum);
+  }
+
+  // log of sum of exp(terms)
+  static double logSum(double[] terms) {
+    double max = Double.NEGATIVE_INFINITY;
+    for(int i = 0;i<terms.length;i++) {
+      max = Math.max(max, terms[i]);
+    }
+    double sum = 0;
+    for(int i = 0;i<terms.length;i++) {
+      sum += Math.exp(terms[i]-max);
+    }
+    return max+Math.log(sum);
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
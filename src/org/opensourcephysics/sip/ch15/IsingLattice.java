@@ -0,0 +1,203 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+
+/**
+ * IsingLattice holds the neighbor table of a lattice with periodic boundary conditions.
+ *
+ * The neighbors of site s are neighbor[s*z] ... neighbor[s*z+z-1], where z is the coordination
+ * number, so a simulation finds them without any modular arithmetic. The two-dimensional
+ * lattices have L x L sites numbered s = i+j*L and the simple cubic lattice has L x L x L sites
+ * numbered s = i+j*L+k*L*L. The first L*L sites are the layer that is displayed.
+ *
+ * The triangular lattice is a square lattice with the bonds to (i+1, j+1) and (i-1, j-1) added.
+ * The honeycomb lattice is the brick wall lattice, a square lattice in which a site is joined
+ * to the site above it if i+j is even and to the site below it if i+j is odd, so L must be even.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class IsingLattice {
+  public static final String SQUARE = "square", TRIANGULAR = "triangular", HONEYCOMB = "honeycomb", SIMPLE_CUBIC = "simple cubic";
+  public final String type;
+  public final int L;
+  public final int N;           // number of sites
+  public final int z;           // coordination number
+  public final int[] neighbor;  // neighbor[s*z+k] is the kth neighbor of site s
+  public final double criticalTemperature;
+
+  IsingLattice(String type, int L, int N, int z, double criticalTemperature) {
+    this.type = type;
+    this.L = L;
+    this.N = N;
+    this.z = z;
+    this.criticalTemperature = criticalTemperature;
+    neighbor = new int[N*z];
+  }
+
+  /**
+   * Creates a lattice of the given type.
+   *
+   * @param type SQUARE, TRIANGULAR, HONEYCOMB or SIMPLE_CUBIC
+   * @param L the linear dimension
+   * @return the lattice
+   */
+  public static IsingLattice create(String type, int L) {
+    if(type.equalsIgnoreCase(TRIANGULAR)) {
+      return triangular(L);
+    } else if(type.equalsIgnoreCase(HONEYCOMB)) {
+      return honeycomb(L);
+    } else if(type.equalsIgnoreCase(SIMPLE_CUBIC)||type.equalsIgnoreCase("cubic")) {
+      return simpleCubic(L);
+    } else if(type.equalsIgnoreCase(SQUARE)) {
+      return square(L);
+    }
+    throw new IllegalArgumentException("unknown lattice: "+type);
+  }
+
+  /**
+   * Creates a square lattice. The neighbors are in the order left, right, down, up.
+   *
+   * @param L the linear dimension
+   * @return the lattice
+   */
+  public static IsingLattice square(int L) {
+    IsingLattice lattice = new IsingLattice(SQUARE, checkSize(L, 2), L*L, 4, 2.0/Math.log(1.0+Math.sqrt(2.0)));
+    int[] neighbor = lattice.neighbor;
+    for(int j = 0, n = 0;j<L;j++) {
+      for(int i = 0;i<L;i++) {
+        neighbor[n++] = site(i-1, j, L);
+        neighbor[n++] = site(i+1, j, L);
+        neighbor[n++] = site(i, j-1, L);
+        neighbor[n++] = site(i, j+1, L);
+      }
+    }
+    return lattice;
+  }
+
+  /**
+   * Creates a triangular lattice, Tc = 4/ln 3.
+   *
+   * @param L the linear dimension
+   * @return the lattice
+   */
+  public static IsingLattice triangular(int L) {
+    IsingLattice lattice = new IsingLattice(TRIANGULAR, checkSize(L, 2), L*L, 6, 4.0/Math.log(3.0));
+    int[] neighbor = lattice.neighbor;
+    for(int j = 0, n = 0;j<L;j++) {
+      for(int i = 0;i<L;i++) {
+        neighbor[n++] = site(i-1, j, L);
+        neighbor[n++] = site(i+1, j, L);
+        neighbor[n++] = site(i, j-1, L);
+        neighbor[n++] = site(i, j+1, L);
+        neighbor[n++] = site(i-1, j-1, L);
+        neighbor[n++] = site(i+1, j+1, L);
+      }
+    }
+    return lattice;
+  }
+
+  /**
+   * Creates a honeycomb lattice, Tc = 2/ln(2+sqrt 3).
+   *
+   * @param L the linear dimension, which must be even
+   * @return the lattice
+   */
+  public static IsingLattice honeycomb(int L) {
+    checkSize(L, 2);
+    if(L%2!=0) {
+      throw new IllegalArgumentException("L must be even for a honeycomb lattice: "+L);
+    }
+    IsingLattice lattice = new IsingLattice(HONEYCOMB, L, L*L, 3, 2.0/Math.log(2.0+Math.sqrt(3.0)));
+    int[] neighbor = lattice.neighbor;
+    for(int j = 0, n = 0;j<L;j++) {
+      for(int i = 0;i<L;i++) {
+        neighbor[n++] = site(i-1, j, L);
+        neighbor[n++] = site(i+1, j, L);
+        neighbor[n++] = ((i+j)%2==0) ? site(i, j+1, L) : site(i, j-1, L);
+      }
+    }
+    return lattice;
+  }
+
+  /**
+   * Creates a simple cubic lattice. Tc = 4.5115 is a Monte Carlo estimate.
+   *
+   * @param L the linear dimension
+   * @return the lattice
+   */
+  public static IsingLattice simpleCubic(int L) {
+    checkSize(L, 2);
+    if((long) L*L*L*6>Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("lattice is too large: "+L);
+    }
+    IsingLattice lattice = new IsingLattice(SIMPLE_CUBIC, L, L*L*L, 6, 4.5115);
+    int[] neighbor = lattice.neighbor;
+    int layer = L*L;
+    for(int k = 0, n = 0;k<L;k++) {
+      int down = ((k+L-1)%L)*layer, up = ((k+1)%L)*layer;
+      for(int j = 0;j<L;j++) {
+        for(int i = 0;i<L;i++) {
+          int s = site(i, j, L);
+          neighbor[n++] = k*layer+site(i-1, j, L);
+          neighbor[n++] = k*layer+site(i+1, j, L);
+          neighbor[n++] = k*layer+site(i, j-1, L);
+          neighbor[n++] = k*layer+site(i, j+1, L);
+          neighbor[n++] = down+s;
+          neighbor[n++] = up+s;
+        }
+      }
+    }
+    return lattice;
+  }
+
+  /**
+   * Returns the number of bonds, Nz/2.
+   *
+   * @return the number of bonds
+   */
+  public int getNumberOfBonds() {
+    return N*z/2;
+  }
+
+  // returns the site at column i and row j with periodic boundary conditions
+  static int site(int i, int j, int L) {
+    return(i+L)%L+((j+L)%L)*L;
+  }
+
+  static int checkSize(int L, int minimum) {
+    if(L<minimum) {
+      throw new IllegalArgumentException("L must be at least "+minimum+": "+L);
+    }
+    return L;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,104 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import org.opensourcephysics.controls.*;
+import org.opensourcephysics.frames.*;
+
+/**
+ * IsingReweightingApp runs the Ising model at a few temperatures and uses multiple histogram
+ * reweighting to plot the energy, specific heat, magnetization and susceptibility as continuous
+ * functions of the temperature.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class IsingReweightingApp extends AbstractCalculation {
+  LatticeFrame displayFrame = new LatticeFrame("Ising Model");
+  PlotFrame heatFrame = new PlotFrame("T", "C", "Specific heat");
+  PlotFrame susceptibilityFrame = new PlotFrame("T", "chi", "Susceptibility");
+  PlotFrame energyFrame = new PlotFrame("T", "E and |M|", "Energy and magnetization per spin");
+
+  public void calculate() {
+    control.clearMessages();
+    int L = control.getInt("L");
+    int mcs = control.getInt("mcs per temperature");
+    String[] values = control.getString("run temperatures").split(",");
+    IsingHistogram[] runs = new IsingHistogram[values.length];
+    for(int r = 0;r<values.length;r++) {
+      Ising ising = new Ising();
+      ising.temperature = Double.parseDouble(values[r].trim());
+      ising.algorithm = Ising.WOLFF;
+      ising.clustersPerStep = 10;
+      ising.recordHistogram = true;
+      ising.initialize(L, displayFrame);
+      for(int i = 0;i<mcs/10;i++) { // equilibrate
+        ising.doOneMCStep();
+      }
+      ising.resetData();
+      for(int i = 0;i<mcs;i++) {
+        ising.doOneMCStep();
+      }
+      runs[r] = ising.histogram;
+      control.println("T = "+ising.temperature+" specific heat = "+decimalFormat.format(ising.specificHeat()));
+    }
+    double lowT = control.getDouble("lowest T");
+    double highT = control.getDouble("highest T");
+    int points = 100;
+    double[] T = new double[points+1];
+    for(int i = 0;i<=points;i++) {
+      T[i] = lowT+i*(highT-lowT)/points;
+    }
+    heatFrame.clearData();
+    susceptibilityFrame.clearData();
+    energyFrame.clearData();
+    energyFrame.setXYColumnNames(0, "T", "E", "energy");
+    energyFrame.setXYColumnNames(1, "T", "|M|", "magnetization");
+    for(IsingHistogram.Reweighted result : IsingHistogram.reweight(runs, T)) {
+      heatFrame.append(0, result.temperature, result.specificHeat);
+      susceptibilityFrame.append(0, result.temperature, result.susceptibility);
+      energyFrame.append(0, result.temperature, result.energy);
+      energyFrame.append(1, result.temperature, result.absoluteMagnetization);
+    }
+  }
+
+  public void reset() {
+    control.setValue("L", 16);
+    control.setValue("mcs per temperature", 20000);
+    control.setValue("run temperatures", "2.15, 2.3, 2.45");
+    control.setValue("lowest T", 2.1);
+    control.setValue("highest T", 2.5);
+  }
+
+  public static void main(String[] args) {
+    CalculationControl.createApp(new IsingReweightingApp());
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
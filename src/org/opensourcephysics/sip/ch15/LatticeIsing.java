@@ -0,0 +1,202 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import java.awt.*;
+import java.util.*;
+import org.opensourcephysics.frames.*;
+
+/**
+ * LatticeIsing is a Metropolis simulation of the Ising model on any IsingLattice.
+ *
+ * The spins are stored in a byte array and the neighbors are read from the precomputed
+ * neighbor table of the lattice. If h is the sum of the neighbors of a spin s, the energy
+ * change of a flip is dE = 2sh with sh = -z, -z+2, ... z, so the acceptance probabilities
+ * are stored in w[(sh+z)/2], an array of z+1 elements.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class LatticeIsing {
+  public IsingLattice lattice;
+  public int N;                       // number of spins
+  public int z;                       // coordination number
+  public byte[] spin;
+  public double temperature = Ising.criticalTemperature;
+  public int mcs = 0;                 // number of MC moves per spin
+  public long energy;
+  public double energyAccumulator = 0;
+  public double energySquaredAccumulator = 0;
+  public long magnetization = 0;
+  public double magnetizationAccumulator = 0;
+  public double magnetizationSquaredAccumulator = 0;
+  public long acceptedMoves = 0;
+  public double[] w;                  // w[(sh+z)/2] is the probability of flipping spin s with neighbor sum h
+  public long randomState = new Random().nextLong()|1; // xorshift state, must not be zero
+  byte[][] displayValues;
+
+  /**
+   * Initializes the lattice with all spins up.
+   *
+   * @param lattice the lattice
+   */
+  public void initialize(IsingLattice lattice) {
+    this.lattice = lattice;
+    N = lattice.N;
+    z = lattice.z;
+    spin = new byte[N];
+    Arrays.fill(spin, (byte) 1);
+    magnetization = N;
+    energy = -lattice.getNumberOfBonds(); // minimum energy
+    w = new double[z+1];
+    displayValues = null;
+    setTemperature(temperature);
+    resetData();
+  }
+
+  /**
+   * Sets the temperature and the acceptance probabilities.
+   *
+   * @param temperature double
+   */
+  public void setTemperature(double temperature) {
+    this.temperature = temperature;
+    for(int k = 0;k<=z;k++) {
+      int dE = 2*(2*k-z);
+      w[k] = (dE<=0) ? 1 : Math.exp(-dE/temperature);
+    }
+  }
+
+  public double specificHeat() {
+    double energySquaredAverage = energySquaredAccumulator/mcs;
+    double energyAverage = energyAccumulator/mcs;
+    double heatCapacity = energySquaredAverage-energyAverage*energyAverage;
+    heatCapacity = heatCapacity/(temperature*temperature);
+    return(heatCapacity/N);
+  }
+
+  public double susceptibility() {
+    double magnetizationSquaredAverage = magnetizationSquaredAccumulator/mcs;
+    double magnetizationAverage = magnetizationAccumulator/mcs;
+    return(magnetizationSquaredAverage-Math.pow(magnetizationAverage, 2))/(temperature*N);
+  }
+
+  public void resetData() {
+    mcs = 0;
+    energyAccumulator = 0;
+    energySquaredAccumulator = 0;
+    magnetizationAccumulator = 0;
+    magnetizationSquaredAccumulator = 0;
+    acceptedMoves = 0;
+  }
+
+  /**
+   * Does N attempted flips of randomly chosen spins and accumulates the data.
+   */
+  public void doOneMCStep() {
+    int[] neighbor = lattice.neighbor;
+    byte[] spin = this.spin;
+    int dEnergy = 0, dMagnetization = 0, accepted = 0;
+    for(int trial = 0;trial<N;trial++) {
+      int s = (int) (random()*N);
+      int h = 0;
+      for(int k = s*z, last = k+z;k<last;k++) {
+        h += spin[neighbor[k]];
+      }
+      int sh = spin[s]*h;
+      if((sh<=0)||(w[(sh+z)>>1]>random())) {
+        dEnergy += 2*sh;
+        dMagnetization -= 2*spin[s];
+        spin[s] = (byte) -spin[s];
+        accepted++;
+      }
+    }
+    energy += dEnergy;
+    magnetization += dMagnetization;
+    acceptedMoves += accepted;
+    energyAccumulator += energy;
+    energySquaredAccumulator += (double) energy*energy;
+    magnetizationAccumulator += magnetization;
+    magnetizationSquaredAccumulator += (double) magnetization*magnetization;
+    mcs++;
+  }
+
+  /**
+   * Computes the energy and magnetization from the spins.
+   */
+  public void computeEnergyAndMagnetization() {
+    long sum = 0;
+    magnetization = 0;
+    for(int s = 0;s<N;s++) {
+      int h = 0;
+      for(int k = s*z;k<(s+1)*z;k++) {
+        h += spin[lattice.neighbor[k]];
+      }
+      sum += spin[s]*h;
+      magnetization += spin[s];
+    }
+    energy = -sum/2;
+  }
+
+  /**
+   * Returns a uniform random number in [0, 1) from an xorshift generator.
+   *
+   * @return the random number
+   */
+  public double random() {
+    randomState ^= randomState<<13;
+    randomState ^= randomState>>>7;
+    randomState ^= randomState<<17;
+    return(randomState>>>11)*0x1.0p-53;
+  }
+
+  /**
+   * Copies the first L x L spins, the bottom layer of a cubic lattice, to a lattice frame.
+   *
+   * @param frame LatticeFrame
+   */
+  public void copyToLattice(LatticeFrame frame) {
+    int L = lattice.L;
+    if((displayValues==null)||(displayValues.length!=L)) {
+      displayValues = new byte[L][L];
+      frame.resizeLattice(L, L);
+      frame.setIndexedColor(1, Color.red);
+      frame.setIndexedColor(-1, Color.green);
+    }
+    for(int i = 0;i<L;i++) {
+      byte[] column = displayValues[i];
+      for(int j = 0;j<L;j++) {
+        column[j] = spin[i+j*L];
+      }
+    }
+    frame.setAll(displayValues);
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
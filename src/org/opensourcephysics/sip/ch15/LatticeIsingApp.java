@@ -0,0 +1,115 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import org.opensourcephysics.controls.*;
+import org.opensourcephysics.frames.*;
+
+/**
+ * LatticeIsingApp simulates the Ising model on a square, triangular, honeycomb or simple cubic lattice
+ * using Metropolis trials or the rejection-free n-fold way, which is much faster far below Tc.
+ *
+ * The lattice frame shows the spins of the first L x L sites, which is the bottom layer of a cubic
+ * lattice, and is updated only when the simulation is displayed.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class LatticeIsingApp extends AbstractSimulation {
+  LatticeIsing ising = new LatticeIsing();
+  LatticeFrame displayFrame = new LatticeFrame("Ising Model");
+  PlotFrame plotFrame = new PlotFrame("time", "E and M", "Ising model");
+
+  public LatticeIsingApp() {
+    plotFrame.setXYColumnNames(0, "mcs", "M", "magnetization");
+    plotFrame.setXYColumnNames(1, "mcs", "E", "energy");
+  }
+
+  public void initialize() {
+    if(control.getString("algorithm").equalsIgnoreCase("n-fold way")) {
+      ising = new NFoldWayIsing();
+    } else {
+      ising = new LatticeIsing();
+    }
+    ising.temperature = control.getDouble("temperature");
+    ising.initialize(IsingLattice.create(control.getString("lattice"), control.getInt("L")));
+    ising.copyToLattice(displayFrame);
+    resetData();
+    control.println("z = "+ising.z+", N = "+ising.N+", Tc = "+ising.lattice.criticalTemperature);
+  }
+
+  public void doStep() {
+    ising.doOneMCStep();
+    plotFrame.append(0, ising.mcs, ising.magnetization*1.0/ising.N);
+    plotFrame.append(1, ising.mcs, ising.energy*1.0/ising.N);
+    if(ising.mcs%getStepsPerDisplay()==0) {
+      ising.copyToLattice(displayFrame);
+    }
+  }
+
+  public void stop() {
+    ising.copyToLattice(displayFrame);
+    double norm = 1.0/((double) ising.mcs*ising.N);
+    control.println("mcs = "+ising.mcs);
+    control.println("acceptance probability = "+ising.acceptedMoves*norm);
+    if(ising instanceof NFoldWayIsing) {
+      control.println("n-fold way events = "+((NFoldWayIsing) ising).events);
+    }
+    control.println("<E> = "+ising.energyAccumulator*norm);
+    control.println("specific heat = "+ising.specificHeat());
+    control.println("<M> = "+ising.magnetizationAccumulator*norm);
+    control.println("susceptibility = "+ising.susceptibility());
+  }
+
+  public void startRunning() {
+    ising.setTemperature(control.getDouble("temperature"));
+  }
+
+  public void reset() {
+    control.setValue("lattice", IsingLattice.TRIANGULAR); // or square, honeycomb or simple cubic
+    control.setValue("L", 64);
+    control.setValue("algorithm", "Metropolis"); // or n-fold way
+    control.setAdjustableValue("temperature", 4.0/Math.log(3.0));
+    enableStepsPerDisplay(true); // allow user to speed up simulation
+  }
+
+  public void resetData() {
+    ising.resetData();
+    plotFrame.clearData();
+    plotFrame.repaint();
+    control.clearMessages();
+  }
+
+  public static void main(String[] args) {
+    SimulationControl control = SimulationControl.createApp(new LatticeIsingApp());
+    control.addButton("resetData", "Reset Data");
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -7,6 +7,7 @@
 
 package org.opensourcephysics.sip.ch15;
 import java.awt.*;
+import java.io.*;
 import org.opensourcephysics.display.*;
 
 /**
@@ -59,6 +60,32 @@ public class ManyDemons implements Drawable {
     return 4/Math.log(1.0+4.0/(demonEnergyAccumulator[i]/(mcs)));
   }
 
+  /**
+   * Opens a time series file with int columns mcs, systemEnergy and magnetization
+   * and the double column Q, the energy added at the left end.
+   *
+   * @param file the file, which is appended to if it exists
+   * @return the writer
+   * @throws IOException
+   */
+  public static TimeSeriesWriter openTimeSeries(File file) throws IOException {
+    return new TimeSeriesWriter(file, new String[] {"mcs", "systemEnergy", "magnetization", "Q"}, new byte[] {TimeSeriesWriter.INT, TimeSeriesWriter.INT, TimeSeriesWriter.INT, TimeSeriesWriter.DOUBLE});
+  }
+
+  /**
+   * Appends the current mcs, system energy, magnetization and added energy to a time series.
+   *
+   * @param timeSeries a writer opened by openTimeSeries
+   * @throws IOException
+   */
+  public void writeTimeSeries(TimeSeriesWriter timeSeries) throws IOException {
+    timeSeries.put(mcs);
+    timeSeries.put(systemEnergy);
+    timeSeries.put(magnetization);
+    timeSeries.put(demonEnergyAccumulator[0]);
+    timeSeries.endRow();
+  }
+
   public void resetData() {
     for(int i = 0;i<N;++i) {
       demonEnergyAccumulator[i] = 0;
@@ -6,6 +6,7 @@
  */
 
 package org.opensourcephysics.sip.ch15;
+import java.io.*;
 import org.opensourcephysics.controls.*;
 import org.opensourcephysics.frames.*;
 
@@ -19,6 +20,7 @@ public class ManyDemonsApp extends AbstractSimulation {
   ManyDemons manyDemons = new ManyDemons();
   DisplayFrame displayFrame = new DisplayFrame("Many Demons");
   PlotFrame plotFrame = new PlotFrame("x", "T", "Temperature vs x");;
+  TimeSeriesWriter timeSeries; // records the energies and magnetization every mcs
 
   public ManyDemonsApp() {
     displayFrame.addDrawable(manyDemons);
@@ -30,12 +32,58 @@ public class ManyDemonsApp extends AbstractSimulation {
     manyDemons.systemEnergy = control.getInt("systemEnergy");
     manyDemons.timeToAddEnergy = control.getInt("timeToAddEnergy");
     manyDemons.initialize();
+    openTimeSeries(control.getString("time series file (blank for none)").trim());
     resetData();
     displayFrame.setPreferredMinMax(-5, 5+manyDemons.N, -5, 5);
   }
 
+  /**
+   * Opens a binary time series file, replacing any time series that is open.
+   *
+   * @param filename the file name or an empty string for no time series
+   */
+  public void openTimeSeries(String filename) {
+    try {
+      if(timeSeries!=null) {
+        timeSeries.close();
+        timeSeries = null;
+      }
+      if(filename.length()>0) {
+        timeSeries = ManyDemons.openTimeSeries(new File(filename));
+      }
+    } catch(IOException ex) {
+      control.println("Time series not saved: "+ex.getMessage());
+      timeSeries = null;
+    }
+  }
+
+  void writeTimeSeries() {
+    if(timeSeries==null) {
+      return;
+    }
+    try {
+      manyDemons.writeTimeSeries(timeSeries);
+    } catch(IOException ex) {
+      control.println("Time series closed: "+ex.getMessage());
+      openTimeSeries("");
+    }
+  }
+
+  void flushTimeSeries() {
+    if(timeSeries==null) {
+      return;
+    }
+    control.println("time series rows = "+timeSeries.getNumberOfRows());
+    try {
+      timeSeries.flush();
+    } catch(IOException ex) {
+      control.println("Time series not flushed: "+ex.getMessage());
+    }
+  }
+
   public void doStep() {
     manyDemons.step();
+    writeTimeSeries();
     plotFrame.clearData();
     for(int i = 1;i<manyDemons.N-1;i++) {
       plotFrame.append(0, i, manyDemons.temperature(i));
@@ -46,12 +94,14 @@ public class ManyDemonsApp extends AbstractSimulation {
     double norm = 1.0/(manyDemons.mcs*manyDemons.N);
     control.println("mcs = "+manyDemons.mcs+" Q = "+manyDemons.demonEnergyAccumulator[0]/manyDemons.mcs);
     control.println("acceptance ratio = "+manyDemons.acceptedMoves*norm+" System Energy = "+manyDemons.systemEnergyAccumulator*norm);
+    flushTimeSeries();
   }
 
   public void reset() {
     control.setValue("N", 52);
     control.setValue("systemEnergy", -20);
     control.setValue("timeToAddEnergy", 1);
+    control.setValue("time series file (blank for none)", "");
   }
 
   public void resetData() {
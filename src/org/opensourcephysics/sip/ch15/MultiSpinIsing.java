@@ -0,0 +1,326 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import java.awt.Color;
+import org.opensourcephysics.frames.*;
+
+/**
+ * MultiSpinIsing is a multispin coded Metropolis simulation of the Ising model.
+ *
+ * Each bit of a long holds one spin, with 1 for up and 0 for down. The lattice can be
+ * stored in two ways.
+ *
+ * In replica mode each word holds the spin at one site in 64 independent replicas of an
+ * L x L lattice. In packed mode a single lattice with L a multiple of 64 is stored with
+ * W = L/64 words per row, and bit k of word w in a row holds the spin in column w+k*W.
+ * The left and right neighbors of a spin are then the same bit of the neighboring word,
+ * except at the edges of a row, where the neighboring word is rotated by one bit.
+ *
+ * The spins are updated using a checkerboard sweep. For the 64 spins in a word the number of
+ * antiparallel neighbors is found using bitwise logic. A spin is flipped with probability one
+ * if at least two neighbors are antiparallel, with probability w[4] if one is and with
+ * probability w[8] if none are. The random bits that choose between these cases are generated
+ * 64 at a time by comparing the binary digits of random numbers with those of w[4] and w[8].
+ * The energy and magnetization are found by counting bits.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class MultiSpinIsing {
+  static final long EVEN_BITS = 0x5555555555555555L;
+  public int L = 64;
+  public int N = L*L;                   // number of spins in each lattice
+  public boolean replicas = true;       // true for 64 replicas, false for one packed lattice
+  public int numberOfSystems = 64;      // number of independent lattices
+  public int W;                         // number of words in each row
+  public long[] words;                  // word w of row j is words[w+j*W]
+  public double temperature = Ising.criticalTemperature;
+  public int mcs = 0;                   // number of MC moves per spin
+  public long[] systemEnergy, systemMagnetization;
+  public double energyAccumulator = 0;  // sums over all systems
+  public double energySquaredAccumulator = 0;
+  public double magnetizationAccumulator = 0;
+  public double magnetizationSquaredAccumulator = 0;
+  public long acceptedMoves = 0;
+  public double[] w = new double[9];    // array to hold Boltzmann factors
+  long w4Bits, w8Bits;                  // binary fractions of w[4] and w[8]
+  long randomState = 1;
+  long[] counter = new long[64];        // bit sliced counters for the replicas
+
+  /**
+   * Initializes all spins up.
+   *
+   * @param L the linear dimension, which must be even in replica mode and a multiple of 64 in packed mode
+   * @param replicas true for 64 replicas, false for one lattice with 64 sites in each word
+   */
+  public void initialize(int L, boolean replicas) {
+    if((L<2)||(L%2!=0)||(!replicas&&(L%64!=0))) {
+      throw new IllegalArgumentException("L must be even for replicas or a multiple of 64 for a packed lattice: "+L);
+    }
+    this.L = L;
+    this.replicas = replicas;
+    N = L*L;
+    W = replicas ? L : L/64;
+    numberOfSystems = replicas ? 64 : 1;
+    words = new long[W*L];
+    java.util.Arrays.fill(words, -1L);
+    systemEnergy = new long[numberOfSystems];
+    systemMagnetization = new long[numberOfSystems];
+    measure();
+    setTemperature(temperature);
+    resetData();
+  }
+
+  /**
+   * Sets the temperature and the Boltzmann factors.
+   *
+   * @param temperature double
+   */
+  public void setTemperature(double temperature) {
+    this.temperature = temperature;
+    w[8] = Math.exp(-8.0/temperature); // other array elements never occur for H = 0
+    w[4] = Math.exp(-4.0/temperature);
+    w4Bits = (long) (w[4]*0x1p63);
+    w8Bits = (long) (w[8]*0x1p63);
+  }
+
+  public void setSeed(long seed) {
+    randomState = (seed==0) ? 1 : seed;
+  }
+
+  public double specificHeat() {
+    double norm = 1.0/((double) mcs*numberOfSystems);
+    double energySquaredAverage = energySquaredAccumulator*norm;
+    double energyAverage = energyAccumulator*norm;
+    double heatCapacity = energySquaredAverage-energyAverage*energyAverage;
+    heatCapacity = heatCapacity/(temperature*temperature);
+    return(heatCapacity/N);
+  }
+
+  public double susceptibility() {
+    double norm = 1.0/((double) mcs*numberOfSystems);
+    double magnetizationSquaredAverage = magnetizationSquaredAccumulator*norm;
+    double magnetizationAverage = magnetizationAccumulator*norm;
+    return(magnetizationSquaredAverage-Math.pow(magnetizationAverage, 2))/(temperature*N);
+  }
+
+  public void resetData() {
+    mcs = 0;
+    energyAccumulator = 0;
+    energySquaredAccumulator = 0;
+    magnetizationAccumulator = 0;
+    magnetizationSquaredAccumulator = 0;
+    acceptedMoves = 0;
+  }
+
+  /**
+   * Does one checkerboard sweep of every system and accumulates the data.
+   */
+  public void doOneMCStep() {
+    updateColor(0);
+    updateColor(1);
+    measure();
+    for(int k = 0;k<numberOfSystems;k++) {
+      double E = systemEnergy[k], M = systemMagnetization[k];
+      energyAccumulator += E;
+      energySquaredAccumulator += E*E;
+      magnetizationAccumulator += M;
+      magnetizationSquaredAccumulator += M*M;
+    }
+    mcs++;
+  }
+
+  void updateColor(int color) {
+    for(int j = 0;j<L;j++) {
+      int row = j*W;
+      int up = (j==L-1) ? 0 : row+W;
+      int down = (j==0) ? (L-1)*W : row-W;
+      for(int w = 0;w<W;w++) {
+        long mask = colorMask(w, j, color);
+        if(mask==0) {
+          continue;
+        }
+        long s = words[row+w];
+        long a1 = s^left(row, w);
+        long a2 = s^right(row, w);
+        long a3 = s^words[up+w];
+        long a4 = s^words[down+w];
+        long x1 = a1^a2, c1 = a1&a2; // add the four antiparallel bits
+        long x2 = a3^a4, c2 = a3&a4;
+        long twoOrMore = c1|c2|(x1&x2);
+        long one = (x1^x2)&~twoOrMore;
+        long none = ~(a1|a2|a3|a4);
+        long flip = twoOrMore&mask;
+        if((one&mask)!=0) {
+          flip |= one&mask&randomBits(w4Bits);
+        }
+        if((none&mask)!=0) {
+          flip |= none&mask&randomBits(w8Bits);
+        }
+        words[row+w] = s^flip;
+        acceptedMoves += Long.bitCount(flip);
+      }
+    }
+  }
+
+  // bits of the word w in row j whose sites have the given color
+  long colorMask(int w, int j, int color) {
+    boolean even = ((w+j+color)&1)==0;
+    if(replicas||(W%2==0)) {
+      return even ? -1L : 0;
+    }
+    return even ? EVEN_BITS : ~EVEN_BITS; // column w+k*W alternates color with k
+  }
+
+  long left(int row, int w) {
+    if(w>0) {
+      return words[row+w-1];
+    }
+    return replicas ? words[row+W-1] : Long.rotateLeft(words[row+W-1], 1);
+  }
+
+  long right(int row, int w) {
+    if(w<W-1) {
+      return words[row+w+1];
+    }
+    return replicas ? words[row] : Long.rotateRight(words[row], 1);
+  }
+
+  /**
+   * Generates 64 independent random bits, each equal to one with the probability
+   * given by the binary fraction probabilityBits/2^63.
+   */
+  long randomBits(long probabilityBits) {
+    long result = 0, undecided = -1L;
+    for(int b = 62;(b>=0)&&(undecided!=0);b--) {
+      long r = nextRandom(); // bit b of the uniform deviates of all 64 positions
+      if(((probabilityBits>>>b)&1)!=0) {
+        result |= undecided&~r;
+        undecided &= r;
+      } else {
+        undecided &= ~r;
+      }
+    }
+    return result;
+  }
+
+  long nextRandom() { // xorshift random number generator
+    randomState ^= randomState<<13;
+    randomState ^= randomState>>>7;
+    randomState ^= randomState<<17;
+    return randomState;
+  }
+
+  /**
+   * Computes the energy and magnetization of each system by counting bits.
+   */
+  public void measure() {
+    if(replicas) {
+      measureReplicas();
+      return;
+    }
+    long antiparallel = 0, up = 0;
+    for(int j = 0;j<L;j++) {
+      int row = j*W;
+      int rowAbove = (j==L-1) ? 0 : row+W;
+      for(int w = 0;w<W;w++) {
+        long s = words[row+w];
+        up += Long.bitCount(s);
+        antiparallel += Long.bitCount(s^right(row, w))+Long.bitCount(s^words[rowAbove+w]);
+      }
+    }
+    systemEnergy[0] = 2*antiparallel-2*N;
+    systemMagnetization[0] = 2*up-N;
+  }
+
+  // counts the bits of each replica using bit sliced counters
+  void measureReplicas() {
+    java.util.Arrays.fill(counter, 0);
+    for(int j = 0;j<L;j++) {
+      int row = j*W;
+      int rowAbove = (j==L-1) ? 0 : row+W;
+      for(int w = 0;w<W;w++) {
+        long s = words[row+w];
+        count(s^right(row, w), 0);
+        count(s^words[rowAbove+w], 0);
+        count(s, 32);
+      }
+    }
+    for(int k = 0;k<64;k++) {
+      long antiparallel = 0, up = 0;
+      for(int p = 0;p<32;p++) {
+        antiparallel += ((counter[p]>>>k)&1)<<p;
+        up += ((counter[32+p]>>>k)&1)<<p;
+      }
+      systemEnergy[k] = 2*antiparallel-2*N;
+      systemMagnetization[k] = 2*up-N;
+    }
+  }
+
+  // adds one to the counters starting at counter[first] for each bit that is set
+  void count(long bits, int first) {
+    for(int p = first;bits!=0;p++) {
+      long carry = counter[p]&bits;
+      counter[p] ^= bits;
+      bits = carry;
+    }
+  }
+
+  /**
+   * Gets the spin at column i and row j of a system.
+   *
+   * @return 1 or -1
+   */
+  public int getSpin(int i, int j, int system) {
+    long bit = replicas ? words[i+j*W]>>>system : words[i%W+j*W]>>>(i/W);
+    return((bit&1)==1) ? 1 : -1;
+  }
+
+  /**
+   * Copies the spins of one system to a lattice frame for display.
+   *
+   * @param lattice LatticeFrame
+   * @param system int
+   */
+  public void copyToLattice(LatticeFrame lattice, int system) {
+    byte[][] values = new byte[L][L];
+    for(int i = 0;i<L;i++) {
+      for(int j = 0;j<L;j++) {
+        values[i][j] = (byte) getSpin(i, j, system);
+      }
+    }
+    lattice.resizeLattice(L, L);
+    lattice.setIndexedColor(1, Color.red);
+    lattice.setIndexedColor(-1, Color.green);
+    lattice.setAll(values);
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
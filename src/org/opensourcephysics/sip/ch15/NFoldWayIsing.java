@@ -0,0 +1,207 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+
+/**
+ * NFoldWayIsing simulates the Metropolis dynamics of the Ising model in continuous time with the
+ * rejection-free n-fold way algorithm of Bortz, Kalos and Lebowitz.
+ *
+ * The spins are grouped into z+1 classes by c = (sh+z)/2, where h is the sum of the neighbors of
+ * spin s. A spin in class c flips with probability w[c] per attempt, so the total flip rate is
+ * R = sum_c n_c w[c] flips per Monte Carlo step per spin. Each event chooses a class with
+ * probability n_c w[c]/R and a spin in that class at random, flips it, and advances the time by
+ * an exponentially distributed waiting time with mean 1/R. Far below Tc almost every Metropolis
+ * trial is rejected, but each event of the n-fold way flips a spin.
+ *
+ * The spins are stored in order[] sorted by class, with class c in order[classStart[c]] ...
+ * order[classStart[c+1]-1], so a spin moves to a neighboring class by one swap. A configuration
+ * contributes to the accumulators in proportion to the time the system stays in it, so the
+ * averages inherited from LatticeIsing are time averages.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class NFoldWayIsing extends LatticeIsing {
+  public double time = 0;  // time in Monte Carlo steps per spin
+  public long events = 0;  // number of spin flips
+  byte[] field;            // sum of the neighbors of each spin
+  int[] order;             // spins sorted by class
+  int[] position;          // order[position[s]] = s
+  int[] classStart;        // first index of each class in order, classStart[z+1] = N
+
+  /**
+   * Initializes the lattice with all spins up.
+   *
+   * @param lattice the lattice
+   */
+  public void initialize(IsingLattice lattice) {
+    super.initialize(lattice);
+    time = 0;
+    computeClasses();
+  }
+
+  public void resetData() {
+    super.resetData();
+    events = 0;
+  }
+
+  /**
+   * Sorts the spins into classes. Must be called if the spins are changed directly.
+   */
+  public void computeClasses() {
+    int[] neighbor = lattice.neighbor;
+    field = new byte[N];
+    order = new int[N];
+    position = new int[N];
+    classStart = new int[z+2];
+    int[] count = new int[z+1];
+    for(int s = 0;s<N;s++) {
+      int h = 0;
+      for(int k = s*z;k<(s+1)*z;k++) {
+        h += spin[neighbor[k]];
+      }
+      field[s] = (byte) h;
+      count[getClass(s)]++;
+    }
+    for(int c = 0;c<=z;c++) {
+      classStart[c+1] = classStart[c]+count[c];
+    }
+    int[] next = classStart.clone();
+    for(int s = 0;s<N;s++) {
+      int index = next[getClass(s)]++;
+      order[index] = s;
+      position[s] = index;
+    }
+  }
+
+  /**
+   * Advances the time by one Monte Carlo step per spin and accumulates the time averages.
+   */
+  public void doOneMCStep() {
+    double end = time+1;
+    while(true) {
+      double rate = 0;
+      for(int c = 0;c<=z;c++) {
+        rate += (classStart[c+1]-classStart[c])*w[c];
+      }
+      double waitingTime = (rate>0) ? -Math.log(1-random())/rate : Double.POSITIVE_INFINITY;
+      if(time+waitingTime>=end) { // the waiting time of the next event is memoryless, so it is drawn again in the next step
+        accumulate(end-time);
+        time = end;
+        break;
+      }
+      accumulate(waitingTime);
+      time += waitingTime;
+      flip(chooseSpin(rate));
+    }
+    mcs++;
+  }
+
+  // chooses a class with probability n_c w[c]/rate and a spin in the class at random
+  int chooseSpin(double rate) {
+    double r = random()*rate;
+    int c = 0;
+    double classRate = 0;
+    for(;c<z;c++) {
+      classRate = (classStart[c+1]-classStart[c])*w[c];
+      if(r<classRate) {
+        break;
+      }
+      r -= classRate;
+    }
+    while(classStart[c+1]==classStart[c]) { // roundoff selected an empty class
+      c--;
+    }
+    int n = classStart[c+1]-classStart[c];
+    return order[classStart[c]+Math.min(n-1, (int) (random()*n))];
+  }
+
+  // flips spin s and moves it and its neighbors to their new classes
+  void flip(int s) {
+    int oldSpin = spin[s];
+    int sh = oldSpin*field[s];
+    moveToClass(s, (-sh+z)>>1);
+    spin[s] = (byte) -oldSpin;
+    energy += 2*sh;
+    magnetization -= 2*oldSpin;
+    for(int k = s*z, last = k+z;k<last;k++) {
+      int n = lattice.neighbor[k];
+      field[n] -= 2*oldSpin;
+      moveToClass(n, getClass(n));
+    }
+    acceptedMoves++;
+    events++;
+  }
+
+  // moves spin s, which is in the class given by its position, to class c one boundary at a time
+  void moveToClass(int s, int c) {
+    int current = getClassOfPosition(position[s]);
+    while(current<c) { // swap with the last spin of the current class and move the boundary down
+      swap(position[s], classStart[current+1]-1);
+      classStart[current+1]--;
+      current++;
+    }
+    while(current>c) { // swap with the first spin of the current class and move the boundary up
+      swap(position[s], classStart[current]);
+      classStart[current]++;
+      current--;
+    }
+  }
+
+  int getClass(int s) {
+    return(spin[s]*field[s]+z)>>1;
+  }
+
+  // returns the class whose block of order contains the index
+  int getClassOfPosition(int index) {
+    int c = 0;
+    while(classStart[c+1]<=index) {
+      c++;
+    }
+    return c;
+  }
+
+  void swap(int i, int j) {
+    int si = order[i], sj = order[j];
+    order[i] = sj;
+    order[j] = si;
+    position[sj] = i;
+    position[si] = j;
+  }
+
+  void accumulate(double dt) {
+    energyAccumulator += energy*dt;
+    energySquaredAccumulator += (double) energy*energy*dt;
+    magnetizationAccumulator += magnetization*dt;
+    magnetizationSquaredAccumulator += (double) magnetization*magnetization*dt;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,217 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * ParallelTemperingIsing simulates Ising models at a ladder of temperatures and exchanges
+ * configurations between neighboring temperatures.
+ *
+ * Each temperature has its own CheckerboardIsing model, which is used rather than Ising
+ * because it does not need a display frame. The models do sweepsPerExchange sweeps in
+ * parallel and then exchanges are attempted between temperatures k and k+1, alternating
+ * between even and odd k. An exchange of the configurations at inverse temperatures b1 and b2
+ * with energies E1 and E2 is accepted with probability min(1, exp((b1-b2)(E1-E2))).
+ * Because the configurations and not the temperatures are exchanged, the accumulators of each
+ * model hold the averages at its temperature.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class ParallelTemperingIsing {
+  public int L = 32;
+  public double[] temperatures;
+  public CheckerboardIsing[] models;
+  public int sweepsPerExchange = 1;
+  public long[] exchangeAttempts, exchangesAccepted; // for temperatures k and k+1
+  public long seed = 1;
+  public int numberOfThreads = Runtime.getRuntime().availableProcessors();
+  public int[] replica;  // replica[k] labels the configuration now at temperature k
+  Random random;
+  int parity = 0;        // 0 to try exchanges with even k, 1 for odd k
+  ExecutorService pool;
+  List<Callable<Object>> sweepTasks = new ArrayList<Callable<Object>>();
+
+  /**
+   * Creates a model with all spins up at each temperature.
+   *
+   * @param L the linear dimension, which must be even
+   * @param temperatures the temperatures in increasing order
+   */
+  public void initialize(int L, double[] temperatures) {
+    shutdown();
+    this.L = L;
+    this.temperatures = temperatures.clone();
+    int M = temperatures.length;
+    random = new Random(seed);
+    models = new CheckerboardIsing[M];
+    replica = new int[M];
+    exchangeAttempts = new long[M];
+    exchangesAccepted = new long[M];
+    sweepTasks.clear();
+    for(int k = 0;k<M;k++) {
+      final CheckerboardIsing model = new CheckerboardIsing();
+      model.seed = random.nextLong();
+      model.temperature = temperatures[k];
+      model.initialize(L, 1);
+      models[k] = model;
+      replica[k] = k;
+      sweepTasks.add(new Callable<Object>() {
+        public Object call() {
+          for(int sweep = 0;sweep<sweepsPerExchange;sweep++) {
+            model.doOneMCStep();
+          }
+          return null;
+        }
+      });
+    }
+    if(numberOfThreads>1) {
+      pool = Executors.newFixedThreadPool(Math.min(numberOfThreads, M), CheckerboardIsing.DAEMON_THREADS);
+    }
+  }
+
+  /**
+   * Does sweepsPerExchange sweeps at every temperature and then attempts the exchanges.
+   */
+  public void step() {
+    if(pool==null) {
+      for(CheckerboardIsing model : models) {
+        for(int sweep = 0;sweep<sweepsPerExchange;sweep++) {
+          model.doOneMCStep();
+        }
+      }
+    } else {
+      CheckerboardIsing.invokeAll(pool, sweepTasks); // returns only when every replica has finished
+    }
+    for(int k = parity;k<models.length-1;k += 2) {
+      attemptExchange(k);
+    }
+    parity = 1-parity;
+  }
+
+  void attemptExchange(int k) {
+    CheckerboardIsing a = models[k], b = models[k+1];
+    double delta = (1/a.temperature-1/b.temperature)*(a.energy-b.energy);
+    exchangeAttempts[k]++;
+    if((delta>=0)||(random.nextDouble()<Math.exp(delta))) {
+      byte[] spin = a.spin;
+      a.spin = b.spin;
+      b.spin = spin;
+      long energy = a.energy;
+      a.energy = b.energy;
+      b.energy = energy;
+      long magnetization = a.magnetization;
+      a.magnetization = b.magnetization;
+      b.magnetization = magnetization;
+      int label = replica[k];
+      replica[k] = replica[k+1];
+      replica[k+1] = label;
+      exchangesAccepted[k]++;
+    }
+  }
+
+  /**
+   * Gets the fraction of accepted exchanges between temperatures k and k+1.
+   *
+   * @param k int
+   * @return double
+   */
+  public double getExchangeAcceptance(int k) {
+    return(exchangeAttempts[k]==0) ? 0 : exchangesAccepted[k]/(double) exchangeAttempts[k];
+  }
+
+  /**
+   * Resets the accumulators at every temperature and the exchange statistics.
+   */
+  public void resetData() {
+    for(CheckerboardIsing model : models) {
+      model.resetData();
+    }
+    Arrays.fill(exchangeAttempts, 0);
+    Arrays.fill(exchangesAccepted, 0);
+  }
+
+  /**
+   * Stops the threads.
+   */
+  public void shutdown() {
+    if(pool!=null) {
+      pool.shutdown();
+      pool = null;
+    }
+  }
+
+  /**
+   * Formats the averages at each temperature as a tab separated table with a header line.
+   *
+   * @return String
+   */
+  public String toTable() {
+    StringBuffer table = new StringBuffer("T\t<E>/N\tC\tchi\texchange acceptance\n");
+    for(int k = 0;k<models.length;k++) {
+      CheckerboardIsing model = models[k];
+      table.append(model.temperature).append('\t').append(model.energyAccumulator/model.mcs/model.N).append('\t')
+        .append(model.specificHeat()).append('\t').append(model.susceptibility()).append('\t')
+        .append((k<models.length-1) ? getExchangeAcceptance(k) : Double.NaN).append('\n');
+    }
+    return table.toString();
+  }
+
+  /**
+   * Runs a ladder of temperatures around the critical temperature and prints the table.
+   *
+   * @param args L, number of temperatures, lowest and highest temperature, and number of exchange steps
+   */
+  public static void main(String[] args) {
+    int L = (args.length>0) ? Integer.parseInt(args[0]) : 32;
+    int M = (args.length>1) ? Integer.parseInt(args[1]) : 16;
+    double lowT = (args.length>2) ? Double.parseDouble(args[2]) : 1.8;
+    double highT = (args.length>3) ? Double.parseDouble(args[3]) : 3.0;
+    int steps = (args.length>4) ? Integer.parseInt(args[4]) : 10000;
+    double[] temperatures = new double[M];
+    for(int k = 0;k<M;k++) { // geometric spacing gives roughly equal acceptance
+      temperatures[k] = lowT*Math.pow(highT/lowT, k/(M-1.0));
+    }
+    ParallelTemperingIsing pt = new ParallelTemperingIsing();
+    pt.initialize(L, temperatures);
+    for(int step = 0;step<steps/10;step++) {
+      pt.step();
+    }
+    pt.resetData();
+    for(int step = 0;step<steps;step++) {
+      pt.step();
+    }
+    System.out.print(pt.toTable());
+    pt.shutdown();
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,259 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * TimeSeriesReader reads the columns of a TimeSeriesWriter file.
+ *
+ * The file is memory mapped in windows of whole rows so that files larger than 2 GB can be read.
+ * Long series can be processed in chunks of rows without holding the whole series in memory.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class TimeSeriesReader {
+  static final long WINDOW_SIZE = 1<<30; // maximum number of bytes mapped at once
+  public final String[] names;
+  public final byte[] types;
+  public final int rowSize;
+  public final int headerSize;
+  public final int numberOfRows;
+  int[] offset; // offset of each column within a row
+  FileChannel channel;
+  MappedByteBuffer window;
+  int firstRowInWindow, rowsInWindow;
+  int rowsPerWindow;
+
+  /**
+   * Chunk holds the values of consecutive rows. values[k][i] is the value of the kth requested
+   * column in row firstRow+i.
+   */
+  public static class Chunk {
+    public int firstRow;
+    public int numberOfRows;
+    public double[][] values;
+  }
+
+  public TimeSeriesReader(File file) throws IOException {
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      int fixedSize = TimeSeriesWriter.MAGIC.length+16;
+      if(channel.size()<fixedSize) {
+        throw new IOException("not a time series file");
+      }
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, fixedSize).order(ByteOrder.LITTLE_ENDIAN);
+      byte[] magic = new byte[TimeSeriesWriter.MAGIC.length];
+      header.get(magic);
+      if(!Arrays.equals(magic, TimeSeriesWriter.MAGIC)||(header.getInt()!=TimeSeriesWriter.VERSION)) {
+        throw new IOException("not a time series file");
+      }
+      headerSize = header.getInt();
+      int numberOfColumns = header.getInt();
+      rowSize = header.getInt();
+      if((headerSize<fixedSize)||(headerSize>channel.size())||(rowSize<=0)) {
+        throw new IOException("corrupted time series header");
+      }
+      header = channel.map(FileChannel.MapMode.READ_ONLY, fixedSize, headerSize-fixedSize).order(ByteOrder.LITTLE_ENDIAN);
+      names = new String[numberOfColumns];
+      types = new byte[numberOfColumns];
+      offset = new int[numberOfColumns];
+      int position = 0;
+      for(int c = 0;c<numberOfColumns;c++) {
+        types[c] = header.get();
+        byte[] name = new byte[header.getShort()];
+        header.get(name);
+        names[c] = new String(name, StandardCharsets.UTF_8);
+        offset[c] = position;
+        position += types[c];
+      }
+      if(position!=rowSize) {
+        throw new IOException("corrupted time series header");
+      }
+      numberOfRows = (int) Math.min(Integer.MAX_VALUE, (channel.size()-headerSize)/rowSize);
+      rowsPerWindow = (int) Math.max(1, WINDOW_SIZE/rowSize);
+    } catch(IOException ex) {
+      channel.close();
+      throw ex;
+    } catch(BufferUnderflowException ex) {
+      channel.close();
+      throw new IOException("corrupted time series header");
+    }
+  }
+
+  /**
+   * Returns true if the file starts with the time series magic number.
+   *
+   * @param file the file
+   * @return true if the file was written by a TimeSeriesWriter
+   */
+  public static boolean isTimeSeries(File file) {
+    try (FileInputStream in = new FileInputStream(file)) {
+      byte[] magic = new byte[TimeSeriesWriter.MAGIC.length];
+      return(in.read(magic)==magic.length)&&Arrays.equals(magic, TimeSeriesWriter.MAGIC);
+    } catch(IOException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Gets the index of a column.
+   *
+   * @param name the column name
+   * @return the index or -1 if there is no column with this name
+   */
+  public int getColumnIndex(String name) {
+    for(int c = 0;c<names.length;c++) {
+      if(names[c].equals(name)) {
+        return c;
+      }
+    }
+    return -1;
+  }
+
+  public int getInt(int row, int column) {
+    ByteBuffer b = row(row);
+    if(types[column]==TimeSeriesWriter.INT) {
+      return b.getInt(b.position()+offset[column]);
+    }
+    return (int) b.getDouble(b.position()+offset[column]);
+  }
+
+  public double getDouble(int row, int column) {
+    ByteBuffer b = row(row);
+    if(types[column]==TimeSeriesWriter.INT) {
+      return b.getInt(b.position()+offset[column]);
+    }
+    return b.getDouble(b.position()+offset[column]);
+  }
+
+  /**
+   * Reads a whole column.
+   *
+   * @param column the column index
+   * @return the values of all rows
+   */
+  public double[] readColumn(int column) {
+    double[] values = new double[numberOfRows];
+    readColumn(column, 0, numberOfRows, values);
+    return values;
+  }
+
+  /**
+   * Reads consecutive values of a column.
+   *
+   * @param column the column index
+   * @param firstRow the first row
+   * @param count the number of rows
+   * @param values the array that receives the values starting at index 0
+   */
+  public void readColumn(int column, int firstRow, int count, double[] values) {
+    int i = 0;
+    while(i<count) {
+      ByteBuffer b = row(firstRow+i);
+      int n = Math.min(count-i, firstRowInWindow+rowsInWindow-(firstRow+i)); // rows left in this window
+      int position = b.position()+offset[column];
+      if(types[column]==TimeSeriesWriter.INT) {
+        for(int k = 0;k<n;k++, position += rowSize) {
+          values[i+k] = b.getInt(position);
+        }
+      } else {
+        for(int k = 0;k<n;k++, position += rowSize) {
+          values[i+k] = b.getDouble(position);
+        }
+      }
+      i += n;
+    }
+  }
+
+  /**
+   * Iterates over the rows in chunks. The same Chunk and arrays are reused for every chunk.
+   *
+   * @param firstRow the first row, which allows equilibration steps to be skipped
+   * @param rowsPerChunk the maximum number of rows in a chunk
+   * @param columns the indices of the columns to read
+   * @return the iterator
+   */
+  public Iterator<Chunk> chunks(final int firstRow, final int rowsPerChunk, final int... columns) {
+    final Chunk chunk = new Chunk();
+    chunk.values = new double[columns.length][rowsPerChunk];
+    return new Iterator<Chunk>() {
+      int nextRow = Math.max(0, firstRow);
+
+      public boolean hasNext() {
+        return nextRow<numberOfRows;
+      }
+
+      public Chunk next() {
+        if(!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        chunk.firstRow = nextRow;
+        chunk.numberOfRows = Math.min(rowsPerChunk, numberOfRows-nextRow);
+        for(int k = 0;k<columns.length;k++) {
+          readColumn(columns[k], chunk.firstRow, chunk.numberOfRows, chunk.values[k]);
+        }
+        nextRow += chunk.numberOfRows;
+        return chunk;
+      }
+    };
+  }
+
+  public void close() throws IOException {
+    window = null;
+    channel.close();
+  }
+
+  // returns the mapped window with its position set to the start of the row
+  private ByteBuffer row(int row) {
+    if((row<0)||(row>=numberOfRows)) {
+      throw new IndexOutOfBoundsException("row "+row+" of "+numberOfRows);
+    }
+    if((window==null)||(row<firstRowInWindow)||(row>=firstRowInWindow+rowsInWindow)) {
+      firstRowInWindow = row-row%rowsPerWindow;
+      rowsInWindow = Math.min(rowsPerWindow, numberOfRows-firstRowInWindow);
+      try {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, headerSize+((long) firstRowInWindow)*rowSize, ((long) rowsInWindow)*rowSize);
+      } catch(IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+    window.position((row-firstRowInWindow)*rowSize);
+    return window;
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,267 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TimeSeriesWriter appends rows of int and double observables, such as the energy and
+ * magnetization after every Monte Carlo step, to a binary file.
+ *
+ * Rows are collected in a chunk buffer and written through a FileChannel when the chunk is full
+ * so that the memory used does not grow with the length of the run. All values are little-endian.
+ *
+ * <pre>
+ * header: magic "OSPTSER1", int version, int header size, int number of columns, int row size,
+ *         then for each column a byte type (INT or DOUBLE), a short name length and the UTF-8 name
+ * row:    the values of the columns in order, 4 bytes for INT and 8 bytes for DOUBLE
+ * </pre>
+ *
+ * A row is written by calling put once for each column followed by endRow.
+ * Opening an existing file with the same columns appends to it.
+ * A partially written last row is discarded.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class TimeSeriesWriter {
+  public static final byte[] MAGIC = {'O', 'S', 'P', 'T', 'S', 'E', 'R', '1'};
+  public static final int VERSION = 1;
+  public static final byte INT = 4;    // column types are the number of bytes per value
+  public static final byte DOUBLE = 8;
+  public static final int CHUNK_SIZE = 1<<16; // approximate number of bytes written at once
+  public final String[] names;
+  public final byte[] types;
+  public final int rowSize;
+  public final int headerSize;
+  FileChannel channel;
+  ByteBuffer buffer;
+  int column;       // next column to be put in the current row
+  int numberOfRows; // rows written or waiting in the buffer
+
+  /**
+   * Opens a time series file for appending.
+   *
+   * @param file the time series file
+   * @param names the column names
+   * @param types the column types, INT or DOUBLE
+   * @throws IOException if the file cannot be written or holds different columns
+   */
+  public TimeSeriesWriter(File file, String[] names, byte[] types) throws IOException {
+    if(names.length!=types.length) {
+      throw new IllegalArgumentException("number of names and types differ");
+    }
+    this.names = names.clone();
+    this.types = types.clone();
+    int size = 0;
+    for(int c = 0;c<types.length;c++) {
+      if((types[c]!=INT)&&(types[c]!=DOUBLE)) {
+        throw new IllegalArgumentException("unknown column type "+types[c]);
+      }
+      size += types[c];
+    }
+    rowSize = size;
+    ByteBuffer header = createHeader();
+    headerSize = header.capacity();
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long fileSize = channel.size();
+      if(fileSize==0) {
+        channel.position(0);
+        while(header.hasRemaining()) {
+          channel.write(header);
+        }
+      } else {
+        checkHeader(header);
+        numberOfRows = (int) ((fileSize-headerSize)/rowSize);
+        channel.truncate(headerSize+((long) numberOfRows)*rowSize);
+      }
+      channel.position(channel.size());
+    } catch(IOException ex) {
+      channel.close();
+      throw ex;
+    }
+    buffer = ByteBuffer.allocateDirect(Math.max(1, CHUNK_SIZE/rowSize)*rowSize).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Puts the value of the next column of the current row.
+   *
+   * @param value the value, which is converted to a double for DOUBLE columns
+   */
+  public void put(int value) {
+    if(types[nextColumn()]==INT) {
+      buffer.putInt(value);
+    } else {
+      buffer.putDouble(value);
+    }
+    column++;
+  }
+
+  /**
+   * Puts the value of the next column of the current row, which must be a DOUBLE column.
+   *
+   * @param value the value
+   */
+  public void put(double value) {
+    if(types[nextColumn()]!=DOUBLE) {
+      throw new IllegalArgumentException("column "+names[column]+" holds int values");
+    }
+    buffer.putDouble(value);
+    column++;
+  }
+
+  /**
+   * Completes the current row and writes the chunk if it is full.
+   *
+   * @throws IOException
+   */
+  public void endRow() throws IOException {
+    if(column!=types.length) {
+      throw new IllegalStateException("row has "+column+" of "+types.length+" columns");
+    }
+    column = 0;
+    numberOfRows++;
+    if(buffer.remaining()<rowSize) {
+      writeBuffer();
+    }
+  }
+
+  public int getNumberOfRows() {
+    return numberOfRows;
+  }
+
+  /**
+   * Discards the rows after the given number of rows, for example the rows written after the
+   * last checkpoint of a run that is resumed. An incomplete row is also discarded.
+   *
+   * @param rows the number of rows to keep
+   * @throws IOException if the time series has fewer rows
+   */
+  public void truncate(int rows) throws IOException {
+    writeBuffer();
+    if((rows<0)||(rows>numberOfRows)) {
+      throw new IOException("time series has "+numberOfRows+" rows, cannot keep "+rows);
+    }
+    buffer.clear();
+    column = 0;
+    numberOfRows = rows;
+    channel.truncate(headerSize+((long) rows)*rowSize);
+    channel.position(channel.size());
+  }
+
+  /**
+   * Writes the completed rows and forces them to the storage device.
+   *
+   * @throws IOException
+   */
+  public void flush() throws IOException {
+    writeBuffer();
+    channel.force(false);
+  }
+
+  /**
+   * Writes the completed rows and closes the file. An incomplete row is discarded.
+   *
+   * @throws IOException
+   */
+  public void close() throws IOException {
+    try {
+      writeBuffer();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private int nextColumn() {
+    if(column>=types.length) {
+      throw new IllegalStateException("row is complete, call endRow");
+    }
+    return column;
+  }
+
+  // writes the completed rows in the buffer and keeps the values of an incomplete row
+  private void writeBuffer() throws IOException {
+    int end = buffer.position();
+    int completed = end-partialRowSize();
+    buffer.flip();
+    buffer.limit(completed);
+    while(buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.limit(end);
+    buffer.compact();
+  }
+
+  private int partialRowSize() {
+    int size = 0;
+    for(int c = 0;c<column;c++) {
+      size += types[c];
+    }
+    return size;
+  }
+
+  private ByteBuffer createHeader() {
+    byte[][] encodedNames = new byte[names.length][];
+    int size = MAGIC.length+16;
+    for(int c = 0;c<names.length;c++) {
+      encodedNames[c] = names[c].getBytes(StandardCharsets.UTF_8);
+      size += 3+encodedNames[c].length;
+    }
+    ByteBuffer header = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    header.put(MAGIC);
+    header.putInt(VERSION);
+    header.putInt(size);
+    header.putInt(names.length);
+    header.putInt(rowSize);
+    for(int c = 0;c<names.length;c++) {
+      header.put(types[c]);
+      header.putShort((short) encodedNames[c].length);
+      header.put(encodedNames[c]);
+    }
+    header.rewind();
+    return header;
+  }
+
+  private void checkHeader(ByteBuffer expected) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(headerSize);
+    channel.position(0);
+    while(header.hasRemaining()&&(channel.read(header)>=0)) {}
+    header.flip();
+    if(!header.equals(expected)) {
+      throw new IOException("time series file has different columns or is not a time series file");
+    }
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */
@@ -0,0 +1,335 @@
+/*
+ * Open Source Physics software is free software as described near the bottom of this code file.
+ *
+ * For additional information and documentation on Open Source Physics please see:
+ * <http://www.opensourcephysics.org/>
+ */
+
+package org.opensourcephysics.sip.ch15;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * WangLandauIsing estimates the density of states g(E) of the Ising model on an L x L square
+ * lattice with periodic boundary conditions using the Wang-Landau algorithm.
+ *
+ * The energy E = -2N+4e is labeled by e = 0 ... N. A single spin flip that changes the
+ * energy from e to e' is accepted with probability min(1, g(e)/g(e')), where dE is found from
+ * the sum of the four neighbors in the neighbor table of IsingLattice.square, as in Ising. After each trial ln g(e) of the
+ * current energy is increased by ln f and the visit histogram H(e) is incremented. When H is
+ * flat, that is, when min H is at least flatness times the mean of H over the energies visited
+ * so far, H is cleared and ln f is halved. If useOneOverT is true, ln f is set to 1/t once it
+ * falls below 1/t, where t is the number of trials per visited energy, and then follows 1/t.
+ * This schedule avoids the saturation of the error of the original algorithm. The run ends
+ * when ln f is less than finalModificationFactor.
+ *
+ * The energy range can be divided into overlapping windows, each sampled by its own walker on
+ * its own thread. A walker rejects flips that leave its window. The pieces of ln g are joined
+ * at the energy in each overlap where their slopes agree best, and g is normalized so that
+ * g(-2N) = 2. Adjacent windows must both have visited two neighboring energies in their overlap.
+ *
+ * @author Jan Tobochnik, Wolfgang Christian, Harvey Gould
+ * @version 1.0 revised 10/17/26
+ */
+public class WangLandauIsing {
+  public int L = 16;
+  public int N = L*L;
+  public double flatness = 0.8;
+  public double finalModificationFactor = 1.0e-6; // final value of ln f
+  public int mcsPerCheck = 100;                   // sweeps between checks of flatness
+  public boolean useOneOverT = true;
+  public int numberOfWindows = 1;
+  public double overlap = 0.5;                    // fraction of each window shared with the next
+  public long seed = 1;
+  public int numberOfThreads = Runtime.getRuntime().availableProcessors();
+  public double[] logG;                           // ln g(E); negative infinity if E never occurs
+  public Window[] windows;
+  int[] neighbor;                                 // neighbor table of the square lattice, shared by the walkers
+
+  /**
+   * Window is a Wang-Landau walker restricted to the energies first ... last.
+   */
+  public class Window implements Callable<Object> {
+    public int first, last;
+    public double[] logG = new double[N+1];
+    public long[] histogram = new long[N+1];
+    public boolean[] visited = new boolean[N+1];
+    public double modificationFactor = 1;    // ln f
+    public long mcs = 0;
+    public boolean oneOverT = false;         // true when ln f follows 1/t
+    byte[] spin = new byte[N];
+    int e = 0;                               // current energy label
+    Random random;
+
+    Window(int first, int last, long seed) {
+      this.first = first;
+      this.last = last;
+      random = new Random(seed);
+      Arrays.fill(spin, (byte) 1);           // all spins up so that e = 0
+    }
+
+    public Object call() throws InterruptedException {
+      moveIntoWindow();
+      while(modificationFactor>=finalModificationFactor) {
+        for(int sweep = 0;sweep<mcsPerCheck;sweep++) {
+          if(Thread.interrupted()) { // the run was cancelled
+            throw new InterruptedException();
+          }
+          doOneMCStep();
+        }
+        double t = (double) mcs*N/numberOfVisitedEnergies();
+        if(oneOverT) {
+          modificationFactor = 1/t;
+        } else if(isFlat()) {
+          modificationFactor /= 2;
+          Arrays.fill(histogram, 0);
+          if(useOneOverT&&(modificationFactor<1/t)) {
+            oneOverT = true;
+            modificationFactor = 1/t;
+          }
+        }
+      }
+      return null;
+    }
+
+    // flips spins that do not move the energy away from the window until the energy is inside it
+    void moveIntoWindow() {
+      while((e<first)||(e>last)) {
+        int s = random.nextInt(N);
+        int newE = e+deltaE(s)/4;
+        if(distance(newE)<=distance(e)) {
+          spin[s] = (byte) -spin[s];
+          e = newE;
+        }
+      }
+    }
+
+    int distance(int e) {
+      return(e<first) ? first-e : (e>last) ? e-last : 0;
+    }
+
+    void doOneMCStep() {
+      for(int k = 0;k<N;++k) {
+        int s = random.nextInt(N);
+        int newE = e+deltaE(s)/4;
+        if((newE>=first)&&(newE<=last)&&((logG[e]>=logG[newE])||(random.nextDouble()<Math.exp(logG[e]-logG[newE])))) {
+          spin[s] = (byte) -spin[s];
+          e = newE;
+        }
+        logG[e] += modificationFactor;
+        histogram[e]++;
+        visited[e] = true;
+      }
+      mcs++;
+    }
+
+    int deltaE(int s) {
+      int sum = spin[neighbor[4*s]]+spin[neighbor[4*s+1]]+spin[neighbor[4*s+2]]+spin[neighbor[4*s+3]];
+      return 2*spin[s]*sum;
+    }
+
+    int numberOfVisitedEnergies() {
+      int count = 0;
+      for(int e = first;e<=last;e++) {
+        if(visited[e]) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    boolean isFlat() {
+      long min = Long.MAX_VALUE, sum = 0;
+      int count = 0;
+      for(int e = first;e<=last;e++) {
+        if(visited[e]) {
+          min = Math.min(min, histogram[e]);
+          sum += histogram[e];
+          count++;
+        }
+      }
+      return(count>1)&&(min>=flatness*sum/count);
+    }
+  }
+
+  /**
+   * Runs the walkers until ln f is less than finalModificationFactor and joins the windows.
+   *
+   * @param L the linear dimension of the lattice
+   * @throws InterruptedException if the run is interrupted
+   * @throws ExecutionException if a walker fails
+   * @throws IllegalStateException if two adjacent windows cannot be joined; increase the overlap
+   */
+  public void run(int L) throws InterruptedException, ExecutionException {
+    this.L = L;
+    N = L*L;
+    neighbor = IsingLattice.square(L).neighbor;
+    Random seeds = new Random(seed);
+    windows = new Window[numberOfWindows];
+    double width = (N+1)/(numberOfWindows-(numberOfWindows-1)*overlap);
+    for(int w = 0;w<numberOfWindows;w++) {
+      int first = (int) Math.round(w*width*(1-overlap));
+      int last = (w==numberOfWindows-1) ? N : Math.min(N, (int) Math.round(first+width)-1);
+      windows[w] = new Window(first, last, seeds.nextLong());
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(numberOfThreads, numberOfWindows)));
+    try {
+      for(Future<Object> future : executor.invokeAll(Arrays.asList(windows))) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    joinWindows();
+  }
+
+  void joinWindows() {
+    logG = new double[N+1];
+    Arrays.fill(logG, Double.NEGATIVE_INFINITY);
+    Window previous = windows[0];
+    int start = 0;
+    double shift = 0;
+    for(int w = 1;w<=numberOfWindows;w++) {
+      Window next = (w<numberOfWindows) ? windows[w] : null;
+      int join = previous.last;
+      double nextShift = 0;
+      if(next!=null) { // join where the slopes of ln g agree best
+        join = -1;
+        double best = Double.MAX_VALUE;
+        for(int e = next.first;e<previous.last;e++) {
+          if(previous.visited[e]&&previous.visited[e+1]&&next.visited[e]&&next.visited[e+1]) {
+            double difference = Math.abs((previous.logG[e+1]-previous.logG[e])-(next.logG[e+1]-next.logG[e]));
+            if(difference<best) {
+              best = difference;
+              join = e;
+            }
+          }
+        }
+        if(join<0) {
+          throw new IllegalStateException("windows "+(w-1)+" and "+w+" have no pair of neighboring energies visited by both; increase the overlap");
+        }
+        nextShift = shift+previous.logG[join]-next.logG[join];
+      }
+      for(int e = start;e<=join;e++) {
+        if(previous.visited[e]) {
+          logG[e] = previous.logG[e]+shift;
+        }
+      }
+      start = join+1;
+      shift = nextShift;
+      previous = next;
+    }
+    double offset = Math.log(2)-logG[0]; // two ground states
+    for(int e = 0;e<=N;e++) {
+      logG[e] += offset;
+    }
+  }
+
+  public double getEnergy(int e) {
+    return -2*N+4*e;
+  }
+
+  /**
+   * Computes ln Z at the temperature T.
+   *
+   * @param T double
+   * @return double
+   */
+  public double logPartitionFunction(double T) {
+    double max = Double.NEGATIVE_INFINITY;
+    for(int e = 0;e<=N;e++) {
+      max = Math.max(max, logG[e]-getEnergy(e)/T);
+    }
+    double sum = 0;
+    for(int e = 0;e<=N;e++) {
+      if(logG[e]!=Double.NEGATIVE_INFINITY) {
+        sum += Math.exp(logG[e]-getEnergy(e)/T-max);
+      }
+    }
+    return max+Math.log(sum);
+  }
+
+  // <E^power> at the temperature T
+  double energyMoment(double T, int power) {
+    double logZ = logPartitionFunction(T);
+    double sum = 0;
+    for(int e = 0;e<=N;e++) {
+      if(logG[e]!=Double.NEGATIVE_INFINITY) {
+        sum += Math.pow(getEnergy(e), power)*Math.exp(logG[e]-getEnergy(e)/T-logZ);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Gets the mean energy per spin.
+   */
+  public double getMeanEnergy(double T) {
+    return energyMoment(T, 1)/N;
+  }
+
+  /**
+   * Gets the specific heat per spin.
+   */
+  public double getSpecificHeat(double T) {
+    double e1 = energyMoment(T, 1);
+    return(energyMoment(T, 2)-e1*e1)/(N*T*T);
+  }
+
+  /**
+   * Gets the free energy per spin, F = -T ln Z/N.
+   */
+  public double getFreeEnergy(double T) {
+    return -T*logPartitionFunction(T)/N;
+  }
+
+  /**
+   * Gets the entropy per spin, S = (<E>-F)/T.
+   */
+  public double getEntropy(double T) {
+    return(getMeanEnergy(T)-getFreeEnergy(T))/T;
+  }
+
+  /**
+   * Estimates g(E) and prints the thermodynamic quantities from T = 1 to T = 4.
+   *
+   * @param args L, number of windows and the final value of ln f
+   * @throws Exception if the run fails
+   */
+  public static void main(String[] args) throws Exception {
+    WangLandauIsing wl = new WangLandauIsing();
+    int L = (args.length>0) ? Integer.parseInt(args[0]) : 16;
+    wl.numberOfWindows = (args.length>1) ? Integer.parseInt(args[1]) : 4;
+    wl.finalModificationFactor = (args.length>2) ? Double.parseDouble(args[2]) : 1.0e-6;
+    wl.run(L);
+    System.out.println("T\t<E>/N\tC\tF/N\tS/N");
+    for(int i = 0;i<=30;i++) {
+      double T = 1+0.1*i;
+      System.out.println(T+"\t"+wl.getMeanEnergy(T)+"\t"+wl.getSpecificHeat(T)+"\t"+wl.getFreeEnergy(T)+"\t"+wl.getEntropy(T));
+    }
+  }
+}
+
+/*
+ * Open Source Physics software is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License (GPL) as
+ * published by the Free Software Foundation; either version 2 of the License,
+ * or(at your option) any later version.
+
+ * Code that uses any portion of the code in the org.opensourcephysics package
+ * or any subpackage (subdirectory) of this package must must also be be released
+ * under the GNU GPL license.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston MA 02111-1307 USA
+ * or view the license online at http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2007  The Open Source Physics project
+ *                     http://www.opensourcephysics.org
+ */